@@ -13,8 +13,6 @@ import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 
-import java.util.ArrayList;
-
 import logic.MultiPlayMatch;
 import server.MPClient;
 import utils.Constants;
@@ -25,7 +23,6 @@ public class Lobby extends State{
     private TextureAtlas buttonsAtlas;
     private Skin buttonSkin;
     private Stage stage;
-    private ArrayList<TextButton> rooms;
 
     private MultiPlayMatch match;
 
@@ -34,7 +31,6 @@ public class Lobby extends State{
 
         background = new Texture("Connecting.jpg");
         stage = new Stage();
-        rooms = new ArrayList<TextButton>();
 
         //Buttons style
         font = new BitmapFont();
@@ -47,42 +43,36 @@ public class Lobby extends State{
         style.down = buttonSkin.getDrawable("buttonOn");
         style.font = font;
 
-        for(int i = 0; i < Constants.NUMBER_MATCHES_HOST_BY_SERVER; i++) {
-            final TextButton textButton = new TextButton("Room " + Integer.toString(i + 1), style);
-            textButton.setWidth(Constants.buttonWidth);
-            textButton.setHeight(Constants.buttonHeight);
-
-            if(i == 0)
-                textButton.setPosition(Constants.ScreenWidth / 2 - Constants.buttonWidth / 2, Constants.ScreenHeight - Constants.ScreenHeight / 3);
-            else
-                textButton.setPosition(Constants.ScreenWidth / 2 - Constants.buttonWidth / 2, Constants.ScreenHeight / 3);
-
-            final int roomNumber = i;
-            textButton.addListener(new ChangeListener() {
-                @Override
-                public void changed(ChangeEvent event, Actor actor) {
-                    final int clientTeam;
-                    Preferences prefs = Gdx.app.getPreferences("My Preferences");
-                    String team = prefs.getString("Starting Team", "Red");
-                    if(team.equals("Red"))
-                        clientTeam = 0;
-                    else clientTeam = 1;
-                    final String name = prefs.getString("Name", "AAA");
-                    match = new MultiPlayMatch(clientTeam);
-
-                    class MyClient implements Runnable {
-                        @Override
-                        public void run() {
-                            MPClient client = new MPClient(name, clientTeam, match, roomNumber);
-                        }
+        //The server picks the room and balances the teams, the starting team is only a preference
+        final TextButton quickMatch = new TextButton("Quick match", style);
+        quickMatch.setWidth(Constants.buttonWidth);
+        quickMatch.setHeight(Constants.buttonHeight);
+        quickMatch.setPosition(Constants.ScreenWidth / 2 - Constants.buttonWidth / 2, Constants.ScreenHeight / 2 - Constants.buttonHeight / 2);
+        quickMatch.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                final int clientTeam;
+                Preferences prefs = Gdx.app.getPreferences("My Preferences");
+                String team = prefs.getString("Starting Team", "Red");
+                if(team.equals("Red"))
+                    clientTeam = 0;
+                else clientTeam = 1;
+                final String name = prefs.getString("Name", "AAA");
+                match = new MultiPlayMatch(clientTeam);
+                match.setRollback(prefs.getBoolean("Rollback", false));
+
+                class MyClient implements Runnable {
+                    @Override
+                    public void run() {
+                        MPClient client = new MPClient(name, clientTeam, match, MPClient.ANY_ROOM);
                     }
-                    Thread newPlayer = new Thread(new MyClient());
-                    newPlayer.start();
-                    gsm.set(new MultiPlayState(gsm, match));
                 }
-            });
-            stage.addActor(textButton);
-        }
+                Thread newPlayer = new Thread(new MyClient());
+                newPlayer.start();
+                gsm.set(new MultiPlayState(gsm, match));
+            }
+        });
+        stage.addActor(quickMatch);
 
         Gdx.input.setInputProcessor(stage);
     }
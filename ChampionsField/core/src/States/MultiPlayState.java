@@ -110,7 +110,7 @@ public class MultiPlayState extends State  {
         font.setColor(Color.WHITE);
 
         //Camera definition
-        camera = new OrthographicCamera(Gdx.graphics.getWidth() * 0.01f, Gdx.graphics.getHeight() * 0.01f);
+        camera = new OrthographicCamera(Constants.FIELD_WIDTH * Constants.WORLD_TO_BOX, Constants.FIELD_HEIGHT * Constants.WORLD_TO_BOX);
         cam.setToOrtho(false);
         camera.update();
         debugRenderer = new Box2DDebugRenderer();
@@ -134,6 +134,10 @@ public class MultiPlayState extends State  {
             gsm.set(new MenuState(gsm));
         }
 
+        //The players are added by queued commands, which only run here until the match starts
+        if(!readyToPlay)
+            match.applyCommands();
+
         if (!readyToPlay && match.everyPlayerConnected()) {
             loadingAtlas.dispose();
             connecting.dispose();
@@ -171,18 +175,17 @@ public class MultiPlayState extends State  {
 
             Vector2 screenPosition;
             Ball b = match.getBall();
-            b.setPositionToBody();
             screenPosition = b.getScreenCoordinates();
 
             if (match.getCurrentState() != Match.matchState.Score) {
-                sb.draw(ballAnimation.getKeyFrame(deltaTime, true), screenPosition.x, screenPosition.y, b.getRadius() * 2 * 100f, b.getRadius() * 2 * 100f);
+                sb.draw(ballAnimation.getKeyFrame(deltaTime, true), screenPosition.x, screenPosition.y, b.getRadius() * 2 * Constants.BOX_TO_SCREEN_WIDTH, b.getRadius() * 2 * Constants.BOX_TO_SCREEN_HEIGHT);
             }
 
             if (match.getCurrentState() == Match.matchState.Score) {
                 sb.draw(explosionAnimation.getKeyFrame(scoreAnimationTime * Constants.EXPLOSION_SPEED, true), explosionPos.x - Constants.EXPLOSION_WIDTH / 2, explosionPos.y - Constants.EXPLOSION_HEIGHT / 2, Constants.EXPLOSION_WIDTH, Constants.EXPLOSION_HEIGHT);
                 scoreAnimationTime += Gdx.graphics.getDeltaTime();
             } else {
-                sb.draw(ballAnimation.getKeyFrame(deltaTime, true), screenPosition.x, screenPosition.y, b.getRadius() * 2 * 100f, b.getRadius() * 2 * 100f);
+                sb.draw(ballAnimation.getKeyFrame(deltaTime, true), screenPosition.x, screenPosition.y, b.getRadius() * 2 * Constants.BOX_TO_SCREEN_WIDTH, b.getRadius() * 2 * Constants.BOX_TO_SCREEN_HEIGHT);
             }
 
             //Teams
@@ -194,20 +197,18 @@ public class MultiPlayState extends State  {
                 radius = homeTeamPlayers.get(0).getBoundingRadius();
 
                 for (int i = 0; i < Constants.NUMBER_PLAYER_ONLINE; i++) {
-                    homeTeamPlayers.get(i).setPositionToBody();
                     screenPosition = homeTeamPlayers.get(i).getScreenCoordinates();
-                    sb.draw(homeTeamTexture, screenPosition.x, screenPosition.y, homeTeamPlayers.get(i).getBoundingRadius() * 2 * 100f, homeTeamPlayers.get(i).getBoundingRadius() * 2 * 100f);
-                    font.draw(sb, homeTeamPlayers.get(i).getName(), screenPosition.x + radius * 100f / 2, screenPosition.y + radius * 100f);
+                    sb.draw(homeTeamTexture, screenPosition.x, screenPosition.y, homeTeamPlayers.get(i).getBoundingRadius() * 2 * Constants.BOX_TO_SCREEN_WIDTH, homeTeamPlayers.get(i).getBoundingRadius() * 2 * Constants.BOX_TO_SCREEN_HEIGHT);
+                    font.draw(sb, homeTeamPlayers.get(i).getName(), screenPosition.x + radius * Constants.BOX_TO_SCREEN_WIDTH / 2, screenPosition.y + radius * Constants.BOX_TO_SCREEN_HEIGHT);
                 }
             }
             if (!visitorTeamPlayers.isEmpty()) {
                 radius = visitorTeamPlayers.get(0).getBoundingRadius();
 
                 for (int i = 0; i < Constants.NUMBER_PLAYER_ONLINE; i++) {
-                    visitorTeamPlayers.get(i).setPositionToBody();
                     screenPosition = visitorTeamPlayers.get(i).getScreenCoordinates();
-                    sb.draw(visitorTeamTexture, screenPosition.x, screenPosition.y, visitorTeamPlayers.get(i).getBoundingRadius() * 2 * 100f, visitorTeamPlayers.get(i).getBoundingRadius() * 2 * 100f);
-                    font.draw(sb, visitorTeamPlayers.get(i).getName(), screenPosition.x + radius * 100f / 2, screenPosition.y + radius * 100f);
+                    sb.draw(visitorTeamTexture, screenPosition.x, screenPosition.y, visitorTeamPlayers.get(i).getBoundingRadius() * 2 * Constants.BOX_TO_SCREEN_WIDTH, visitorTeamPlayers.get(i).getBoundingRadius() * 2 * Constants.BOX_TO_SCREEN_HEIGHT);
+                    font.draw(sb, visitorTeamPlayers.get(i).getName(), screenPosition.x + radius * Constants.BOX_TO_SCREEN_WIDTH / 2, screenPosition.y + radius * Constants.BOX_TO_SCREEN_HEIGHT);
                 }
             }
 
@@ -218,8 +219,8 @@ public class MultiPlayState extends State  {
 
             Goal g = match.getHomeTeamGoal();
             screenPosition = g.getScreenCoordinates();
-            float vertLength = match.getHomeTeamGoal().getVerticalLength() * Constants.BOX_TO_WORLD;
-            float horLength = match.getHomeTeamGoal().getHorizontalLength() * Constants.BOX_TO_WORLD;
+            float vertLength = match.getHomeTeamGoal().getVerticalLength() * Constants.BOX_TO_SCREEN_HEIGHT;
+            float horLength = match.getHomeTeamGoal().getHorizontalLength() * Constants.BOX_TO_SCREEN_WIDTH;
             sb.draw(goalTexture, screenPosition.x, screenPosition.y, horLength, vertLength);
 
             g = match.getVisitorTeamGoal();
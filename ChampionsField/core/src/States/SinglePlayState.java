@@ -141,7 +141,7 @@ public class SinglePlayState extends State {
         font = new BitmapFont();
         font.setColor(Color.WHITE);
         //Camera definition
-        camera = new OrthographicCamera(Gdx.graphics.getWidth() * 0.01f, Gdx.graphics.getHeight() * 0.01f);
+        camera = new OrthographicCamera(Constants.FIELD_WIDTH * Constants.WORLD_TO_BOX, Constants.FIELD_HEIGHT * Constants.WORLD_TO_BOX);
         camera.update();
         debugRenderer = new Box2DDebugRenderer();
         scoreAnimationTime = 0;
@@ -231,7 +231,7 @@ public class SinglePlayState extends State {
             screenPosition = b.getScreenCoordinates();
 
             if(match.getCurrentState() != Match.matchState.Score) {
-                sb.draw(ballAnimation.getKeyFrame(deltaTime, true), screenPosition.x, screenPosition.y, b.getRadius()*2 * 100f, b.getRadius()*2* 100f);
+                sb.draw(ballAnimation.getKeyFrame(deltaTime, true), screenPosition.x, screenPosition.y, b.getRadius() * 2 * Constants.BOX_TO_SCREEN_WIDTH, b.getRadius() * 2 * Constants.BOX_TO_SCREEN_HEIGHT);
             }
 
             //Teams
@@ -244,13 +244,13 @@ public class SinglePlayState extends State {
                 for (int i = 0; i < match.getNumberOfPlayers(); i++) {
                     homeTeamPlayers.get(i).setPositionToBody();
                     screenPosition = homeTeamPlayers.get(i).getScreenCoordinates();
-                    sb.draw(homeTeamTexture, screenPosition.x, screenPosition.y, homeTeamPlayers.get(i).getBoundingRadius() * 2 * 100f, homeTeamPlayers.get(i).getBoundingRadius() * 2 * 100f);
-                    font.draw(sb, homeTeamPlayers.get(i).getName(), screenPosition.x + radius * 100f / 2, screenPosition.y + radius * 100f + radius/5 * 100f);
+                    sb.draw(homeTeamTexture, screenPosition.x, screenPosition.y, homeTeamPlayers.get(i).getBoundingRadius() * 2 * Constants.BOX_TO_SCREEN_WIDTH, homeTeamPlayers.get(i).getBoundingRadius() * 2 * Constants.BOX_TO_SCREEN_HEIGHT);
+                    font.draw(sb, homeTeamPlayers.get(i).getName(), screenPosition.x + radius * Constants.BOX_TO_SCREEN_WIDTH / 2, screenPosition.y + radius * Constants.BOX_TO_SCREEN_HEIGHT + radius/5 * Constants.BOX_TO_SCREEN_HEIGHT);
 
                     visitorTeamPlayers.get(i).setPositionToBody();
                     screenPosition = visitorTeamPlayers.get(i).getScreenCoordinates();
-                    sb.draw(visitorTeamTexture, screenPosition.x, screenPosition.y, visitorTeamPlayers.get(i).getBoundingRadius()*2* 100f, visitorTeamPlayers.get(i).getBoundingRadius()*2* 100f);
-                    font.draw(sb, visitorTeamPlayers.get(i).getName(), screenPosition.x + radius * 100f / 2, screenPosition.y + radius * 100f + radius/5 * 100f);
+                    sb.draw(visitorTeamTexture, screenPosition.x, screenPosition.y, visitorTeamPlayers.get(i).getBoundingRadius() * 2 * Constants.BOX_TO_SCREEN_WIDTH, visitorTeamPlayers.get(i).getBoundingRadius() * 2 * Constants.BOX_TO_SCREEN_HEIGHT);
+                    font.draw(sb, visitorTeamPlayers.get(i).getName(), screenPosition.x + radius * Constants.BOX_TO_SCREEN_WIDTH / 2, screenPosition.y + radius * Constants.BOX_TO_SCREEN_HEIGHT + radius/5 * Constants.BOX_TO_SCREEN_HEIGHT);
                 }
             }
 
@@ -261,8 +261,8 @@ public class SinglePlayState extends State {
 
             Goal g = match.getHomeTeamGoal();
             screenPosition = g.getScreenCoordinates();
-            float vertLength = match.getHomeTeamGoal().getVerticalLength() * Constants.BOX_TO_WORLD;
-            float horLength = match.getHomeTeamGoal().getHorizontalLength() * Constants.BOX_TO_WORLD;
+            float vertLength = match.getHomeTeamGoal().getVerticalLength() * Constants.BOX_TO_SCREEN_HEIGHT;
+            float horLength = match.getHomeTeamGoal().getHorizontalLength() * Constants.BOX_TO_SCREEN_WIDTH;
             sb.draw(goalTexture, screenPosition.x, screenPosition.y, horLength, vertLength);
 
             g = match.getVisitorTeamGoal();
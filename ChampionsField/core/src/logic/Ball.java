@@ -1,6 +1,5 @@
 package logic;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.ai.steer.Steerable;
 import com.badlogic.gdx.ai.steer.SteeringAcceleration;
 import com.badlogic.gdx.ai.steer.SteeringBehavior;
@@ -16,6 +15,9 @@ import com.badlogic.gdx.physics.box2d.World;
 import utils.Constants;
 
 public class Ball implements Coordinates, Steerable<Vector2> {
+    public static final float LINEAR_DAMPING = 0.75f;
+    public static final float RESTITUTION = 0.8f;
+    public static final float FRICTION = 0.9f;
     Vector2 position;
     Body body;
 
@@ -43,7 +45,7 @@ public class Ball implements Coordinates, Steerable<Vector2> {
         bodyDef.type = BodyDef.BodyType.DynamicBody;
         bodyDef.position.set(position.x, position.y);
         body = w.createBody(bodyDef);
-        body.setLinearDamping(0.75f);
+        body.setLinearDamping(LINEAR_DAMPING);
         body.setAngularDamping(0.75f);
 
         CircleShape shape = new CircleShape();
@@ -52,8 +54,8 @@ public class Ball implements Coordinates, Steerable<Vector2> {
         FixtureDef fixtureDef = new FixtureDef();
         fixtureDef.shape = shape;
         fixtureDef.density = 2.5f;
-        fixtureDef.friction = 0.9f;
-        fixtureDef.restitution = 0.8f;
+        fixtureDef.friction = FRICTION;
+        fixtureDef.restitution = RESTITUTION;
         fixtureDef.filter.categoryBits = Constants.entityMasks.BallMask.getMask();
         fixtureDef.filter.maskBits = (short) (Constants.entityMasks.PlayerMask.getMask() | Constants.entityMasks.GoalMask.getMask() |
                 Constants.entityMasks.FieldBordersMask.getMask() | Constants.entityMasks.GoalMask.getMask() | Constants.entityMasks.FootballGoalMask.getMask());
@@ -187,8 +189,8 @@ public class Ball implements Coordinates, Steerable<Vector2> {
      */
     @Override
     public Vector2 getScreenCoordinates() {
-        float x = getPosition().x * 100f + Gdx.graphics.getWidth() / 2 - radius * 100f;
-        float y = getPosition().y * 100f + Gdx.graphics.getHeight() / 2 - radius * 100f;
+        float x = getPosition().x * Constants.BOX_TO_SCREEN_WIDTH + Constants.ScreenWidth / 2 - radius * Constants.BOX_TO_SCREEN_WIDTH;
+        float y = getPosition().y * Constants.BOX_TO_SCREEN_HEIGHT + Constants.ScreenHeight / 2 - radius * Constants.BOX_TO_SCREEN_HEIGHT;
         return new Vector2(x, y);
     }
 
@@ -0,0 +1,208 @@
+package logic;
+
+import com.badlogic.gdx.math.Vector2;
+
+import utils.Constants;
+
+public class BallExtrapolator {
+    //Box2D doesn't bounce slower hits than this, the ball just stops against the border
+    static final float BOUNCE_THRESHOLD = 1f;
+    //Below this speed the ball is considered stopped, so it isn't stepped further
+    static final float REST_SPEED = 0.001f;
+    static final float STEP = Constants.GAME_SIMULATION_SPEED;
+    static final float DAMPING = 1f / (1f + STEP * Ball.LINEAR_DAMPING);
+    //Box2D mixes the frictions of the ball and of the borders, which keep the default 0.2
+    static final float FRICTION = (float) Math.sqrt(Ball.FRICTION * 0.2f);
+
+    float borderX, borderY, goalHalfHeight, goalLine;
+
+    //Ring of the states received, each one is the start of a trajectory
+    float[] times, x, y, vx, vy;
+    int first;
+    int size;
+
+    //The last trajectory stepped, so time moving forward continues from it
+    int steppedOffset;
+    float steppedTime;
+    Vector2 steppedPosition;
+    Vector2 steppedVelocity;
+
+    Vector2 position;
+
+    /**
+     * Constructor for the extrapolator, the ball's center bounces off the borders minus its radius
+     * @param borderX x of the field's left and right borders
+     * @param borderY y of the field's top and bottom borders
+     * @param goalHalfHeight half the height of the goals' mouth
+     * @param goalLine x of the goals' back line
+     * @param radius the ball's radius
+     * @param capacity number of states kept, the oldest one is dropped when it's full
+     */
+    public BallExtrapolator(float borderX, float borderY, float goalHalfHeight, float goalLine, float radius, int capacity) {
+        this.borderX = borderX - radius;
+        this.borderY = borderY - radius;
+        this.goalHalfHeight = goalHalfHeight - radius;
+        this.goalLine = goalLine - radius;
+        times = new float[capacity];
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        first = 0;
+        size = 0;
+        steppedOffset = -1;
+        steppedPosition = new Vector2();
+        steppedVelocity = new Vector2();
+        position = new Vector2();
+    }
+
+    /**
+     * Stores a state of the ball, from then on it's extrapolated from it
+     * A state at the same time as the newest one replaces it, an older one restarts the history
+     * @param time the state's time, in seconds
+     * @param x the ball's x position
+     * @param y the ball's y position
+     * @param vx the ball's x velocity
+     * @param vy the ball's y velocity
+     */
+    public void add(float time, float x, float y, float vx, float vy) {
+        steppedOffset = -1;
+        if(size > 0) {
+            float newest = times[index(size - 1)];
+            if(time == newest)
+                size--;
+            else if(time < newest)
+                clear();
+        }
+
+        if(size == times.length) {
+            first = index(1);
+            size--;
+        }
+
+        int index = index(size);
+        times[index] = time;
+        this.x[index] = x;
+        this.y[index] = y;
+        this.vx[index] = vx;
+        this.vy[index] = vy;
+        size++;
+    }
+
+    /**
+     * Returns where the ball is at a time, moved from the last state received before it
+     * The model is the one of the physics world: linear damping, and bouncing off the field's borders
+     * Collisions with players aren't predicted, the next state received corrects them
+     * @param time the time to sample, in seconds
+     * @return position to return, it's reused by the next call, or null if there are no states
+     */
+    public Vector2 sample(float time) {
+        if(size == 0)
+            return null;
+
+        int offset = size - 1;
+        while(offset > 0 && times[index(offset)] > time)
+            offset--;
+
+        if(offset != steppedOffset || steppedTime > time) {
+            int index = index(offset);
+            steppedOffset = offset;
+            steppedTime = times[index];
+            steppedPosition.set(x[index], y[index]);
+            steppedVelocity.set(vx[index], vy[index]);
+        }
+
+        while(steppedTime + STEP <= time) {
+            steppedTime += STEP;
+            if(steppedVelocity.len2() < REST_SPEED * REST_SPEED) {
+                steppedTime = time;
+                break;
+            }
+            step();
+        }
+
+        float remaining = Math.max(0, time - steppedTime);
+        return position.set(steppedPosition.x + steppedVelocity.x * remaining, steppedPosition.y + steppedVelocity.y * remaining);
+    }
+
+    /**
+     * Returns the ball's velocity at the time of the last sample
+     * @return velocity to return
+     */
+    public Vector2 getVelocity() {
+        return steppedVelocity;
+    }
+
+    /**
+     * Returns the time of the newest state received
+     * @return time to return, or a negative one if there are no states
+     */
+    public float getNewestTime() {
+        return size == 0 ? -1 : times[index(size - 1)];
+    }
+
+    /**
+     * Forgets every state
+     */
+    public void clear() {
+        first = 0;
+        size = 0;
+        steppedOffset = -1;
+    }
+
+    /**
+     * Advances the stepped trajectory by one step, as the physics world would
+     * The goals' mouths open the left and right borders up to the goals' back line
+     */
+    private void step() {
+        steppedVelocity.scl(DAMPING);
+        steppedPosition.mulAdd(steppedVelocity, STEP);
+
+        if(Math.abs(steppedPosition.y) > borderY) {
+            steppedPosition.y = Math.signum(steppedPosition.y) * borderY;
+            steppedVelocity.x = slide(steppedVelocity.x, steppedVelocity.y);
+            steppedVelocity.y = bounce(steppedVelocity.y);
+        }
+
+        float limitX = Math.abs(steppedPosition.y) < goalHalfHeight ? goalLine : borderX;
+        if(Math.abs(steppedPosition.x) > limitX) {
+            steppedPosition.x = Math.signum(steppedPosition.x) * limitX;
+            steppedVelocity.y = slide(steppedVelocity.y, steppedVelocity.x);
+            steppedVelocity.x = bounce(steppedVelocity.x);
+        }
+    }
+
+    /**
+     * Returns the velocity against a border after hitting it
+     * @param v the velocity against the border
+     * @return velocity to return
+     */
+    private float bounce(float v) {
+        if(Math.abs(v) < BOUNCE_THRESHOLD)
+            return 0;
+
+        return -v * Ball.RESTITUTION;
+    }
+
+    /**
+     * Returns the velocity along a border after hitting it
+     * Friction turns part of it into spin, at most until the ball rolls, which for a disc leaves two thirds of it
+     * @param tangent the velocity along the border
+     * @param normal the velocity against the border
+     * @return velocity to return
+     */
+    private float slide(float tangent, float normal) {
+        float impulse = Math.abs(normal) * (Math.abs(normal) < BOUNCE_THRESHOLD ? 1 : 1 + Ball.RESTITUTION);
+        float change = Math.min(Math.abs(tangent) / 3, FRICTION * impulse);
+        return tangent - Math.signum(tangent) * change;
+    }
+
+    /**
+     * Returns the position of a state in the ring
+     * @param offset the state's offset from the oldest one
+     * @return index to return
+     */
+    private int index(int offset) {
+        return (first + offset) % times.length;
+    }
+}
@@ -1,6 +1,5 @@
 package logic;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
@@ -23,6 +22,11 @@ public class Field {
     Body rightHalfMoon;
     Body leftHalfMoon;
 
+    //Where the ball's borders are, in the physics world
+    float ballBorderX;
+    float ballBorderY;
+    float goalHalfHeight;
+
     /**
      * Constructor for the Field.
      * Initializes bodies and creates the borders.
@@ -53,10 +57,10 @@ public class Field {
      * @param w the world the borders are added
      */
     private void createBorders(World w) {
-        float width =  Gdx.graphics.getWidth() * 0.01f;
-        float height = Gdx.graphics.getHeight() * 0.01f;
-        float widthScale =  Gdx.graphics.getWidth() / Constants.FIELD_TEXTURE_WIDTH;
-        float heightScale = Gdx.graphics.getHeight() / Constants.FIELD_TEXTURE_HEIGHT;
+        float width =  Constants.FIELD_WIDTH * 0.01f;
+        float height = Constants.FIELD_HEIGHT * 0.01f;
+        float widthScale =  Constants.fieldWidthScale;
+        float heightScale = Constants.fieldHeightScale;
 
         //Edges of the screen
         EdgeShape shape1 = new EdgeShape();
@@ -93,6 +97,9 @@ public class Field {
         float x = 135 * 0.01f * widthScale;
         float y = 35 * 0.01f * heightScale;
         float goalY = 250 * 0.01f * heightScale;
+        ballBorderX = width / 2 - x;
+        ballBorderY = height / 2 - y;
+        goalHalfHeight = goalY;
 
         //Edges of the field
         ChainShape topFieldBorder = new ChainShape();
@@ -1,6 +1,5 @@
 package logic;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
@@ -50,9 +49,9 @@ public class Goal implements Coordinates{
         //User data is to identify the goal collision
         EdgeShape goalTrigger = new EdgeShape();
         if(whichTeam.equals("VisitorGoal"))
-            goalTrigger.set(this.horizontalLength + ((Constants.BALL_SIZE * 100 / 1920) * Gdx.graphics.getWidth() / 100) * 0.01f, this.verticalLength/2, this.horizontalLength +((Constants.BALL_SIZE * 100 / 1920) * Gdx.graphics.getWidth() / 100) * 0.01f, -this.verticalLength/2);
+            goalTrigger.set(this.horizontalLength + ((Constants.BALL_SIZE * 100 / 1920) * Constants.FIELD_WIDTH / 100) * 0.01f, this.verticalLength/2, this.horizontalLength +((Constants.BALL_SIZE * 100 / 1920) * Constants.FIELD_WIDTH / 100) * 0.01f, -this.verticalLength/2);
         else
-            goalTrigger.set(this.horizontalLength - ((Constants.BALL_SIZE * 100 / 1920) * Gdx.graphics.getWidth() / 100) * 0.01f, this.verticalLength/2, this.horizontalLength - ((Constants.BALL_SIZE * 100 / 1920) * Gdx.graphics.getWidth() / 100) * 0.01f, -this.verticalLength/2);
+            goalTrigger.set(this.horizontalLength - ((Constants.BALL_SIZE * 100 / 1920) * Constants.FIELD_WIDTH / 100) * 0.01f, this.verticalLength/2, this.horizontalLength - ((Constants.BALL_SIZE * 100 / 1920) * Constants.FIELD_WIDTH / 100) * 0.01f, -this.verticalLength/2);
 
         FixtureDef fixtureDef = new FixtureDef();
         fixtureDef.filter.categoryBits = Constants.entityMasks.GoalMask.getMask();
@@ -119,8 +118,8 @@ public class Goal implements Coordinates{
      */
     @Override
     public Vector2 getScreenCoordinates() {
-        float x = getPosition().x * 100f + Gdx.graphics.getWidth()/2;
-        float y = getPosition().y * 100f + Gdx.graphics.getHeight()/2 - (getVerticalLength() * 100f)/2;
+        float x = getPosition().x * Constants.BOX_TO_SCREEN_WIDTH + Constants.ScreenWidth/2;
+        float y = getPosition().y * Constants.BOX_TO_SCREEN_HEIGHT + Constants.ScreenHeight/2 - (getVerticalLength() * Constants.BOX_TO_SCREEN_HEIGHT)/2;
         return new Vector2(x, y);
     }
 }
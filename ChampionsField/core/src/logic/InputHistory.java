@@ -0,0 +1,74 @@
+package logic;
+
+import com.badlogic.gdx.math.Vector2;
+
+public class InputHistory {
+    long[] ticks;
+    float[] vx, vy, dt;
+    int first;
+    int size;
+
+    /**
+     * Constructor for the history
+     * @param capacity number of steps kept, the oldest one is dropped when it's full
+     */
+    public InputHistory(int capacity) {
+        ticks = new long[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        dt = new float[capacity];
+        first = 0;
+        size = 0;
+    }
+
+    /**
+     * Stores the velocity the controlled player had during a local step
+     * @param tick the server tick that simulates this step, when its input reaches the server
+     * @param vx the step's x velocity
+     * @param vy the step's y velocity
+     * @param dt the step's duration
+     */
+    public void add(long tick, float vx, float vy, float dt) {
+        if(size == ticks.length) {
+            first = (first + 1) % ticks.length;
+            size--;
+        }
+
+        int index = (first + size) % ticks.length;
+        ticks[index] = tick;
+        this.vx[index] = vx;
+        this.vy[index] = vy;
+        this.dt[index] = dt;
+        size++;
+    }
+
+    /**
+     * Drops every step the server already simulated
+     * @param tick the server tick of the snapshot, every step up to it is in its positions
+     */
+    public void acknowledge(long tick) {
+        while(size > 0 && ticks[first] <= tick) {
+            first = (first + 1) % ticks.length;
+            size--;
+        }
+    }
+
+    /**
+     * Moves a position by every step the server hasn't simulated yet
+     * @param position the server's position, it's changed to the predicted one
+     */
+    public void replay(Vector2 position) {
+        for(int i = 0; i < size; i++) {
+            int index = (first + i) % ticks.length;
+            position.add(vx[index] * dt[index], vy[index] * dt[index]);
+        }
+    }
+
+    /**
+     * Forgets every step
+     */
+    public void clear() {
+        first = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,104 @@
+package logic;
+
+import com.badlogic.gdx.math.Vector2;
+
+public class Interpolator {
+    //Samples further apart than this are a reposition, such as a kickoff, and aren't blended
+    static final float TELEPORT_DISTANCE = 2f;
+    float[] times, x, y;
+    int first;
+    int size;
+    Vector2 position;
+
+    /**
+     * Constructor for the interpolator
+     * @param capacity number of samples kept, the oldest one is dropped when it's full
+     */
+    public Interpolator(int capacity) {
+        times = new float[capacity];
+        x = new float[capacity];
+        y = new float[capacity];
+        first = 0;
+        size = 0;
+        position = new Vector2();
+    }
+
+    /**
+     * Stores an entity's position at a time of the server's clock
+     * A sample at the same time as the newest one replaces it, an older one restarts the history
+     * @param time the sample's time, in seconds
+     * @param x the entity's x position
+     * @param y the entity's y position
+     */
+    public void add(float time, float x, float y) {
+        if(size > 0) {
+            int last = index(size - 1);
+            if(time == times[last]) {
+                this.x[last] = x;
+                this.y[last] = y;
+                return;
+            }
+            if(time < times[last])
+                clear();
+        }
+
+        if(size == times.length) {
+            first = index(1);
+            size--;
+        }
+
+        int index = index(size);
+        times[index] = time;
+        this.x[index] = x;
+        this.y[index] = y;
+        size++;
+    }
+
+    /**
+     * Returns the entity's position at a time, blended between the two samples around it
+     * Times before the oldest sample or after the newest one are clamped to them
+     * @param time the time to sample, in seconds
+     * @return position to return, it's reused by the next call, or null if there are no samples
+     */
+    public Vector2 sample(float time) {
+        if(size == 0)
+            return null;
+
+        int next = 0;
+        while(next < size && times[index(next)] <= time)
+            next++;
+
+        if(next == 0)
+            return position.set(x[first], y[first]);
+        if(next == size) {
+            int last = index(size - 1);
+            return position.set(x[last], y[last]);
+        }
+
+        int a = index(next - 1), b = index(next);
+        float dx = x[b] - x[a];
+        float dy = y[b] - y[a];
+        if(dx * dx + dy * dy > TELEPORT_DISTANCE * TELEPORT_DISTANCE)
+            return position.set(x[b], y[b]);
+
+        float alpha = (time - times[a]) / (times[b] - times[a]);
+        return position.set(x[a] + dx * alpha, y[a] + dy * alpha);
+    }
+
+    /**
+     * Forgets every sample
+     */
+    public void clear() {
+        first = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the position of a sample in the ring
+     * @param offset the sample's offset from the oldest one
+     * @return index to return
+     */
+    private int index(int offset) {
+        return (first + offset) % times.length;
+    }
+}
@@ -1,6 +1,5 @@
 package logic;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.ai.msg.PriorityQueue;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.math.Vector2;
@@ -59,13 +58,13 @@ public abstract class Match{
         createCollisionListener();
 
         this.numberOfPlayers = numberOfPlayers;
-        this.playerSize = (Constants.PLAYER_SIZE * 100 / 1920) * Gdx.graphics.getWidth() / 100;
+        this.playerSize = (Constants.PLAYER_SIZE * 100 / 1920) * Constants.FIELD_WIDTH / 100;
 
         //Objects
         field = new Field(w);
-        homeTeamGoal = new Goal(-Gdx.graphics.getWidth()/2 + 30f * Constants.widthScale, 0, 500f * Constants.heightScale, 100f * Constants.widthScale,  w, "HomeGoal");
-        visitorTeamGoal = new Goal(Gdx.graphics.getWidth()/2 - 30f * Constants.widthScale, 0, 500f * Constants.heightScale, 100f * Constants.widthScale,  w, "VisitorGoal");
-        ball = new Ball(0, 0, (Constants.BALL_SIZE * 100 / 1920) * Gdx.graphics.getWidth() / 100, w);
+        homeTeamGoal = new Goal(-Constants.FIELD_WIDTH/2 + 30f * Constants.fieldWidthScale, 0, 500f * Constants.fieldHeightScale, 100f * Constants.fieldWidthScale,  w, "HomeGoal");
+        visitorTeamGoal = new Goal(Constants.FIELD_WIDTH/2 - 30f * Constants.fieldWidthScale, 0, 500f * Constants.fieldHeightScale, 100f * Constants.fieldWidthScale,  w, "VisitorGoal");
+        ball = new Ball(0, 0, (Constants.BALL_SIZE * 100 / 1920) * Constants.FIELD_WIDTH / 100, w);
         rain = new Rain(Constants.ScreenWidth, Constants.ScreenHeight);
 
         currentState = matchState.KickOff;
@@ -117,12 +116,10 @@ public abstract class Match{
                         ArrayList<String> visitorTeamNames = visitorTeam.getPlayerNames();
 
                         if(homeTeamNames.contains(data1) || visitorTeamNames.contains(data1)){
-                            ball.lastTouch = data1;
+                            ballTouched(data1);
                         } else if(homeTeamNames.contains(data2) || visitorTeamNames.contains(data2)){
-                            ball.lastTouch = data2;
+                            ballTouched(data2);
                         }
-
-                        ballTouched = true;
                     }
                 }
             }
@@ -165,6 +162,15 @@ public abstract class Match{
      */
     public abstract void teamScored(Team defendingTeam, Team attackingTeam, String lastTouch);
 
+    /**
+     * Called when a player touches the ball, it becomes the last player who touched it
+     * @param name the player's name
+     */
+    protected void ballTouched(String name) {
+        ball.lastTouch = name;
+        ballTouched = true;
+    }
+
     /**
      * OVERRIDEABLE FUNCTION
      * Updates the match
@@ -197,6 +203,15 @@ public abstract class Match{
         return this.ball;
     }
 
+    /**
+     * Creates an extrapolator of the ball that knows this match's field
+     * @param capacity number of ball states it keeps
+     * @return extrapolator to return
+     */
+    public BallExtrapolator createBallExtrapolator(int capacity) {
+        return new BallExtrapolator(field.ballBorderX, field.ballBorderY, field.goalHalfHeight, Math.abs(homeTeamGoal.position.x), ball.getRadius(), capacity);
+    }
+
     /**
      * Returns the home team
      * @return team to return
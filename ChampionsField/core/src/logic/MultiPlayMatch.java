@@ -3,23 +3,74 @@ package logic;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntMap;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import utils.Constants;
 import utils.Statistics;
 
 public class MultiPlayMatch extends Match {
-    public volatile boolean controlledPlayerMoved;
-    public volatile boolean ballMoved;
-    public volatile boolean canRepositionAfterScore;
+    //Local steps kept for the server to acknowledge, a few seconds at 60 steps per second
+    static final int INPUT_HISTORY = 256;
+    //Errors above this distance are snapped, smaller ones are corrected over a few steps
+    static final float SNAP_DISTANCE = 1f;
+    static final float CORRECTION_RATE = 0.2f;
+    //Remote players and the ball are drawn this far behind the newest snapshot, so there's one to blend towards
+    static final float INTERPOLATION_DELAY = 0.1f;
+    static final int INTERPOLATION_SAMPLES = 32;
+    //The render clock follows the snapshots' clock slowly, and jumps to it when it's too far
+    static final float CLOCK_ADJUST_RATE = 0.05f;
+    //World states kept for rollback, a few seconds at 60 steps per second
+    static final int ROLLBACK_HISTORY = 256;
+    //Lockstep frames buffered before the first one is stepped, they absorb the network's jitter
+    static final int LOCKSTEP_DELAY = 3;
+    //Length of a server tick, in microseconds
+    static final long TICK_MICROS = (long) (Constants.GAME_SIMULATION_SPEED * 1000000);
+    public volatile boolean inputChanged;
+    public volatile float inputX;
+    public volatile float inputY;
+    //A touch of the client's player for the server to check, at the tick of the ball it saw and where the player was
+    public volatile boolean touchClaimed;
+    public volatile long touchTick;
+    public volatile float touchX;
+    public volatile float touchY;
     public volatile boolean scoresSaved;
     public volatile Vector2 controlledPlayerInitialPosition;
-    public volatile boolean canStepWorld;
     public boolean everyPlayersConnected;
     public int controlledPlayerTeam;
     Player controlledPlayer;
+    IntMap<Player> entities;
+    ConcurrentLinkedQueue<Runnable> commands;
+    InputHistory inputHistory;
+    Vector2 predictedPosition;
+    Vector2 correction;
+    IntMap<Interpolator> interpolators;
+    BallExtrapolator ballExtrapolator;
+    float snapshotTime;
+    float renderTime;
+    boolean rollback;
+    WorldHistory worldHistory;
+    int replayFrames;
+    boolean replaying;
+    //The server's time the local ball is at, it's placed at the snapshot's time and stepped from it
+    float ballTime;
+    boolean lockstep;
+    ArrayDeque<Runnable> lockstepQueue;
+    int bufferedFrames;
+    boolean lockstepRunning;
+    long lockstepTicks;
+    float scoreTime;
+    int[] lockstepIds;
+    //The server's start of the match, in the local clock in microseconds, every client times the match from it
+    long matchStart;
+    boolean matchStarted;
+    //Half the round trip to the server, an input sent now is simulated by the server this much later, in microseconds
+    long inputDelay;
     private boolean barrierSide;
     public boolean isFull;
 
@@ -31,23 +82,117 @@ public class MultiPlayMatch extends Match {
     public MultiPlayMatch(int controlledPlayerTeam){
         super(0);
 
+        homeTeam = new Team("Benfica", Team.TeamState.Attacking, w);
+        visitorTeam = new Team("Porto", Team.TeamState.Defending, w);
+        setControlledPlayerTeam(controlledPlayerTeam);
+        numberOfPlayers = 0;
+        inputChanged = false;
+        inputX = 0;
+        inputY = 0;
+        everyPlayersConnected = false;
+        isFull = false;
+        controlledPlayerInitialPosition = new Vector2();
+        entities = new IntMap<Player>();
+        commands = new ConcurrentLinkedQueue<Runnable>();
+        inputHistory = new InputHistory(INPUT_HISTORY);
+        predictedPosition = new Vector2();
+        correction = new Vector2();
+        interpolators = new IntMap<Interpolator>();
+        ballExtrapolator = createBallExtrapolator(INTERPOLATION_SAMPLES);
+        snapshotTime = 0;
+        renderTime = -INTERPOLATION_DELAY;
+        rollback = false;
+        worldHistory = new WorldHistory(ROLLBACK_HISTORY);
+        replayFrames = 0;
+        replaying = false;
+        touchClaimed = false;
+        ballTime = 0;
+        lockstep = false;
+        lockstepQueue = new ArrayDeque<Runnable>();
+        bufferedFrames = 0;
+        lockstepRunning = false;
+        lockstepTicks = 0;
+        scoreTime = 0;
+        lockstepIds = new int[0];
+        matchStart = 0;
+        matchStarted = false;
+        inputDelay = 0;
+    }
+
+    /**
+     * Sets the time the server started the match at, the match's clock counts from it
+     * @param start the server's start converted to the local clock, System.nanoTime's in microseconds
+     * @param inputDelay half the round trip to the server, in microseconds
+     */
+    public void setMatchStart(long start, long inputDelay) {
+        matchStart = start;
+        matchStarted = true;
+        this.inputDelay = inputDelay;
+    }
+
+    /**
+     * Sets the lockstep mode, the server then relays every player's input instead of the world's positions
+     * Every client steps the same simulation from the same inputs, so nothing in it may read the clock or an unseeded random
+     * @param seed the room's seed, shared by every client in it
+     */
+    public void setLockstep(long seed) {
+        lockstep = true;
+        rain.setSeed(seed);
+    }
+
+    /**
+     * Queues the inputs of one lockstep tick, they're stepped in the order they arrive
+     * @param velocities every player's velocity, x then y, in the order of their ids
+     */
+    public void queueFrame(float[] velocities) {
+        lockstepQueue.add(new LockstepFrame(velocities));
+        bufferedFrames++;
+    }
+
+    /**
+     * Sets the rollback mode
+     * Every local step saves the world, and each snapshot rewinds it to the step the server was at and simulates
+     * the steps since then again, so every body is drawn in the present instead of only the client's player
+     * @param rollback true to use the rollback mode, false to reconcile only the client's player
+     */
+    public void setRollback(boolean rollback) {
+        this.rollback = rollback;
+        worldHistory.track(w);
+    }
+
+    /**
+     * Sets the team the client's player is controlling, before any player is added
+     * The server may place the player in the other team than the one it asked for
+     * @param controlledPlayerTeam team the client's player is controlling
+     */
+    public void setControlledPlayerTeam(int controlledPlayerTeam) {
         if(controlledPlayerTeam == 0){
-            homeTeam = new Team("Benfica", Team.TeamState.Attacking, w);
-            visitorTeam = new Team("Porto", Team.TeamState.Defending, w);
+            homeTeam.teamState = Team.TeamState.Attacking;
+            visitorTeam.teamState = Team.TeamState.Defending;
         } else{
-            homeTeam = new Team("Benfica", Team.TeamState.Defending, w);
-            visitorTeam = new Team("Porto", Team.TeamState.Attacking, w);
+            homeTeam.teamState = Team.TeamState.Defending;
+            visitorTeam.teamState = Team.TeamState.Attacking;
         }
 
         this.controlledPlayerTeam = controlledPlayerTeam;
-        numberOfPlayers = 0;
-        controlledPlayerMoved = false;
-        ballMoved = false;
-        everyPlayersConnected = false;
-        canRepositionAfterScore = false;
-        canStepWorld = true;
-        isFull = false;
-        controlledPlayerInitialPosition = new Vector2();
+    }
+
+    /**
+     * Queues a change to the match from another thread, such as the network's
+     * It runs on the render thread before the next world step, so bodies are never touched while the world steps
+     * @param command the change to apply
+     */
+    public void post(Runnable command) {
+        commands.offer(command);
+    }
+
+    /**
+     * Applies every queued change, in the order they were posted
+     */
+    public void applyCommands() {
+        Runnable command;
+        while((command = commands.poll()) != null)
+            command.run();
     }
 
     /**
@@ -60,16 +205,23 @@ public class MultiPlayMatch extends Match {
 
     /**
      * Adds a player to the client's match
+     * @param id player's id in the room
      * @param name player's name
      * @param team player's team
      * @param controlledPlayer is the controlled player?
      * @param barrierSide match's initial barrier side
      */
-    public void addPlayerToMatch(String name, int team, boolean controlledPlayer, boolean barrierSide) {
+    public void addPlayerToMatch(int id, String name, int team, boolean controlledPlayer, boolean barrierSide) {
+        Player player;
         if(team == 0)
-            homeTeam.addPlayer(name, team, playerSize, controlledPlayer, w, controlledPlayerTeam, this);
+            player = homeTeam.addPlayer(id, name, team, playerSize, controlledPlayer, w, controlledPlayerTeam, this);
         else
-            visitorTeam.addPlayer(name, team, playerSize, controlledPlayer, w, controlledPlayerTeam, this);
+            player = visitorTeam.addPlayer(id, name, team, playerSize, controlledPlayer, w, controlledPlayerTeam, this);
+        entities.put(id, player);
+        if(!controlledPlayer)
+            interpolators.put(id, new Interpolator(INTERPOLATION_SAMPLES));
+        worldHistory.track(w);
+        sortLockstepIds();
 
         this.barrierSide = barrierSide;
         field.activateBarriers(this.barrierSide);
@@ -78,18 +230,51 @@ public class MultiPlayMatch extends Match {
 
     /**
      * Removes a player from the cient's match
-     * @param name player's name
-     * @param team player's team
+     * @param id player's id in the room
      */
-    public void removePlayerFromMatch(String name, int team) {
-        if(team == 0)
-            homeTeam.removePlayer(name);
+    public void removePlayerFromMatch(final int id) {
+        //In lockstep every client must remove it between the same two ticks
+        if(lockstep) {
+            lockstepQueue.add(new Runnable() {
+                @Override
+                public void run() {
+                    removeEntity(id);
+                }
+            });
+            return;
+        }
+
+        removeEntity(id);
+    }
+
+    /**
+     * Removes a player's body and every state kept about it
+     * @param id player's id in the room
+     */
+    private void removeEntity(int id) {
+        Player player = entities.remove(id);
+        if(player == null)
+            return;
+
+        interpolators.remove(id);
+        if(player.team == 0)
+            homeTeam.removePlayer(player);
         else
-            visitorTeam.removePlayer(name);
+            visitorTeam.removePlayer(player);
+        worldHistory.track(w);
+        sortLockstepIds();
 
         numberOfPlayers--;
     }
 
+    /**
+     * Sorts the players' ids, the order the lockstep frames carry their inputs in
+     */
+    private void sortLockstepIds() {
+        lockstepIds = entities.keys().toArray().toArray();
+        Arrays.sort(lockstepIds);
+    }
+
     /**
      * Returns the initial position of the client's player
      * @return the initial position to return
@@ -99,16 +284,12 @@ public class MultiPlayMatch extends Match {
     }
 
     /**
-     * Checks if every player is connected / the teams are filled
+     * Checks if every player is connected / the teams are filled, and the server started the match
      * @return returns true if the game is ready to start, and false otherwise
      */
     public boolean everyPlayerConnected() {
-        if(homeTeam.getPlayers().size() == Constants.NUMBER_PLAYER_ONLINE && visitorTeam.getPlayers().size() == Constants.NUMBER_PLAYER_ONLINE){
-            startTime = System.currentTimeMillis();
-            return true;
-        }
-
-        return false;
+        return matchStarted && homeTeam.getPlayers().size() == Constants.NUMBER_PLAYER_ONLINE
+                && visitorTeam.getPlayers().size() == Constants.NUMBER_PLAYER_ONLINE;
     }
 
     /**
@@ -127,13 +308,48 @@ public class MultiPlayMatch extends Match {
     }
 
     /**
-     * Changes the team's states and sets the information about the goal scored
+     * Goals are decided by the server's match, so a local goal collision is ignored
+     * In lockstep every client's simulation is the same, so the goal is decided locally
      * @param defendingTeam the defending team
      * @param attackingTeam the attacking team
      * @param lastTouch the last player who touched the ball
      */
     @Override
     public void teamScored(Team defendingTeam, Team attackingTeam, String lastTouch) {
+        if(!lockstep || currentState == matchState.Score)
+            return;
+
+        scoreTime = 0;
+        scoreGoal(defendingTeam, attackingTeam, lastTouch);
+    }
+
+    /**
+     * Called when the server reports a goal
+     * Changes the team's states and sets the information about the goal scored
+     * @param team the team that scored
+     * @param lastTouchId id of the last player who touched the ball, -1 if none
+     */
+    public void goalScored(int team, int lastTouchId) {
+        String lastTouch = getEntityName(lastTouchId);
+        Team defendingTeam, attackingTeam;
+        if(team == 0) {
+            defendingTeam = homeTeam;
+            attackingTeam = visitorTeam;
+        } else {
+            defendingTeam = visitorTeam;
+            attackingTeam = homeTeam;
+        }
+
+        scoreGoal(defendingTeam, attackingTeam, lastTouch);
+    }
+
+    /**
+     * Changes the team's states and sets the information about the goal scored
+     * @param defendingTeam the team that scored
+     * @param attackingTeam the team that conceded
+     * @param lastTouch the last player who touched the ball
+     */
+    private void scoreGoal(Team defendingTeam, Team attackingTeam, String lastTouch) {
         currentState = Match.matchState.Score;
         ArrayList<String> attackingTeamNames = attackingTeam.getPlayerNames();
 
@@ -156,6 +372,13 @@ public class MultiPlayMatch extends Match {
      */
     @Override
     public void updateMatch(float x, float y, float dt) {
+        applyCommands();
+        if(lockstep) {
+            updateLockstep(x, y);
+            return;
+        }
+
+        float vx = 0, vy = 0;
         switch (currentState) {
             case KickOff: {
                 ball.body.setAwake(true);
@@ -166,42 +389,298 @@ public class MultiPlayMatch extends Match {
                     currentState = matchState.Play;
                 }
                 controlledPlayer.getBody().setLinearVelocity(x, y);
+                vx = x;
+                vy = y;
                 break;
             }
             case Play: {
                 controlledPlayer.getBody().setLinearVelocity(x, y);
+                vx = x;
+                vy = y;
                 break;
             }
             case Score:{
                 break;
             }
         }
-        elapsedTime = ((System.currentTimeMillis() - startTime) / 1000);
+        elapsedTime = Math.max(0, (System.nanoTime() / 1000 - matchStart) / 1000000);
         time = Constants.formatter.format(new Date(elapsedTime * 1000L));
 
-        rain.update();
+        rain.update(dt);
+
+        //The server keeps applying the last joystick it got, so the step is simulated at the tick its input arrives at
+        //Until a snapshot of that tick comes back, it's replayed on every correction
+        long tick = inputTick();
+        if(rollback)
+            worldHistory.save(tick, vx, vy, currentState);
+        else inputHistory.add(tick, vx, vy, Constants.GAME_SIMULATION_SPEED);
+
+        applyCorrection();
+        w.step(Constants.GAME_SIMULATION_SPEED, 6, 2);
+        ballTime += Constants.GAME_SIMULATION_SPEED;
+        updateRenderPositions(dt);
+
+        //The server only needs the joystick, and only when it changes
+        if(x != inputX || y != inputY) {
+            inputX = x;
+            inputY = y;
+            inputChanged = true;
+        }
+    }
+
+    /**
+     * Moves the client's player by part of the error left from the last reconciliation
+     */
+    private void applyCorrection() {
+        if(correction.isZero())
+            return;
+
+        float dx = correction.x * CORRECTION_RATE;
+        float dy = correction.y * CORRECTION_RATE;
+        Vector2 position = controlledPlayer.getBody().getPosition();
+        controlledPlayer.getBody().setTransform(position.x + dx, position.y + dy, 0);
+        controlledPlayer.setPositionToBody();
+        correction.sub(dx, dy);
+        if(correction.len2() < 0.0001f)
+            correction.setZero();
+    }
+
+    /**
+     * Reconciles the client's player with the server's position
+     * The steps the server hasn't simulated yet are replayed on top of it, and the client's player
+     * converges to the result instead of jumping back
+     * @param x the server's x position
+     * @param y the server's y position
+     */
+    private void reconcile(float x, float y) {
+        predictedPosition.set(x, y);
+        inputHistory.replay(predictedPosition);
+
+        Vector2 position = controlledPlayer.getBody().getPosition();
+        float dx = predictedPosition.x - position.x;
+        float dy = predictedPosition.y - position.y;
+        if(dx * dx + dy * dy > SNAP_DISTANCE * SNAP_DISTANCE) {
+            Vector2 velocity = controlledPlayer.getBody().getLinearVelocity();
+            controlledPlayer.updatePlayerPosition(predictedPosition.x, predictedPosition.y, velocity.x, velocity.y);
+            correction.setZero();
+        } else correction.set(dx, dy);
+    }
+
+    /**
+     * Advances the render clock and places every entity where it's drawn
+     * The client's player is drawn at its body, the others at their interpolated position
+     * @param dt the delta time
+     */
+    private void updateRenderPositions(float dt) {
+        if(rollback) {
+            for(Player player : entities.values())
+                player.setPositionToBody();
+            ball.setPositionToBody();
+            return;
+        }
+
+        renderTime += dt;
+        float drift = snapshotTime - INTERPOLATION_DELAY - renderTime;
+        if(Math.abs(drift) > INTERPOLATION_DELAY)
+            renderTime += drift;
+        else renderTime += drift * CLOCK_ADJUST_RATE;
+
+        for(IntMap.Entry<Player> entry : entities.entries()) {
+            Interpolator interpolator = interpolators.get(entry.key);
+            Vector2 position = interpolator == null ? null : interpolator.sample(renderTime);
+            if(position == null)
+                entry.value.setPositionToBody();
+            else entry.value.setPosition(position);
+        }
+
+        Vector2 position = ballExtrapolator.sample(renderTime);
+        if(position == null)
+            ball.setPositionToBody();
+        else ball.setPosition(position);
+    }
+
+    /**
+     * Sets the server's time of the snapshot whose positions are applied next
+     * A time older than the last one means the server's clock restarted, such as when the match starts
+     * @param tick the snapshot's server tick
+     */
+    public void setSnapshotTick(long tick) {
+        float time = tick * Constants.GAME_SIMULATION_SPEED;
+        if(time < snapshotTime) {
+            for(Interpolator interpolator : interpolators.values())
+                interpolator.clear();
+            ballExtrapolator.clear();
+            renderTime = time - INTERPOLATION_DELAY;
+        }
+        snapshotTime = time;
+    }
+
+    /**
+     * Returns the server tick that simulates the current local step, once its input reaches the server
+     * Before the match starts the server's clock stands at 0, so every snapshot covers the steps
+     * @return tick to return
+     */
+    private long inputTick() {
+        if(!matchStarted)
+            return 0;
+
+        long arrival = System.nanoTime() / 1000 + inputDelay - matchStart;
+        return Math.max(0, arrival) / TICK_MICROS + 1;
+    }
+
+    /**
+     * Drops the local steps the server already simulated, called before a snapshot's positions are applied
+     * @param tick the snapshot's server tick
+     */
+    public void acknowledgeInput(long tick) {
+        if(!rollback) {
+            inputHistory.acknowledge(tick);
+            return;
+        }
+
+        replayFrames = worldHistory.rewind(tick);
+    }
+
+    /**
+     * Simulates again the steps the server hasn't, on top of the snapshot's positions, called after they're applied
+     * Only in rollback mode, each step uses the input and the match's state it had the first time
+     */
+    public void resimulate() {
+        if(!rollback || replayFrames == 0)
+            return;
+
+        //The touches seen again were already claimed the first time
+        matchState presentState = currentState;
+        replaying = true;
+        for(int i = 0; i < replayFrames; i++) {
+            currentState = worldHistory.getMatchState(i);
+            worldHistory.update(i, currentState);
+            if(currentState != matchState.Score)
+                controlledPlayer.getBody().setLinearVelocity(worldHistory.getInputX(i), worldHistory.getInputY(i));
+            w.step(Constants.GAME_SIMULATION_SPEED, 6, 2);
+            ballTime += Constants.GAME_SIMULATION_SPEED;
+        }
+        replaying = false;
+        currentState = presentState;
+        replayFrames = 0;
+    }
+
+    /**
+     * Steps the lockstep simulation by the frames received, it stalls while there are none
+     * Frames that piled up behind a stall are caught up two per update
+     * @param x the client's joystick x velocity
+     * @param y the client's joystick y velocity
+     */
+    private void updateLockstep(float x, float y) {
+        if(!lockstepRunning && bufferedFrames >= LOCKSTEP_DELAY)
+            lockstepRunning = true;
+
+        if(lockstepRunning) {
+            int steps = bufferedFrames > 2 * LOCKSTEP_DELAY ? 2 : 1;
+            for(int i = 0; i < steps; i++)
+                runFrame();
+        }
+
+        for(Player player : entities.values())
+            player.setPositionToBody();
+        ball.setPositionToBody();
+
+        //The client's own player also moves only when its input comes back in a frame
+        if(x != inputX || y != inputY) {
+            inputX = x;
+            inputY = y;
+            inputChanged = true;
+        }
+    }
+
+    /**
+     * Runs the queued events up to and including the next frame
+     */
+    private void runFrame() {
+        Runnable event;
+        while((event = lockstepQueue.poll()) != null) {
+            event.run();
+            if(event instanceof LockstepFrame) {
+                bufferedFrames--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Advances the lockstep simulation one tick, it reads nothing but the frame's inputs and the world
+     * @param velocities every player's velocity, x then y, in the order of their ids
+     */
+    private void stepLockstep(float[] velocities) {
+        switch (currentState) {
+            case KickOff: {
+                ball.body.setAwake(true);
+                if (ball.body.getPosition().x != 0 || ball.body.getPosition().y != 0) {
+                    field.deactivateBarriers();
+                    homeTeam.teamState = Team.TeamState.Playing;
+                    visitorTeam.teamState = Team.TeamState.Playing;
+                    currentState = matchState.Play;
+                }
+                applyVelocities(velocities);
+                break;
+            }
+            case Play: {
+                applyVelocities(velocities);
+                break;
+            }
+            case Score:{
+                scoreTime += Constants.GAME_SIMULATION_SPEED;
+                if(scoreTime >= Constants.EXPLOSION_DURATION)
+                    kickOff();
+                break;
+            }
+        }
 
-        canStepWorld = false;
+        rain.update(Constants.GAME_SIMULATION_SPEED);
         w.step(Constants.GAME_SIMULATION_SPEED, 6, 2);
-        canStepWorld = true;
 
-        if(x != 0 || y != 0) controlledPlayerMoved = true;
-        if(ballTouched){
-            ballMoved = true;
-            ballTouched = false;
+        lockstepTicks++;
+        elapsedTime = (long) (lockstepTicks * Constants.GAME_SIMULATION_SPEED);
+        time = Constants.formatter.format(new Date(elapsedTime * 1000L));
+    }
+
+    /**
+     * Sets every player's velocity from a lockstep frame
+     * @param velocities every player's velocity, x then y, in the order of their ids
+     */
+    private void applyVelocities(float[] velocities) {
+        for(int i = 0; i < lockstepIds.length && 2 * i + 1 < velocities.length; i++) {
+            Player player = entities.get(lockstepIds[i]);
+            player.getBody().setLinearVelocity(velocities[2 * i], velocities[2 * i + 1]);
         }
     }
 
+    /**
+     * Repositions the players and the ball after a goal and switches the kickoff side, as the server does
+     */
+    private void kickOff() {
+        currentState = matchState.KickOff;
+        homeTeam.repositionTeam();
+        visitorTeam.repositionTeam();
+        ball.reposition();
+        ball.lastTouch = "";
+        barrierSide = !barrierSide;
+        field.activateBarriers(barrierSide);
+    }
+
     /**
      * Called after a goal is scored
-     * Repositions the players and the ball
+     * Switches the kickoff side, the server repositions the players and the ball
+     * In lockstep the kickoff is a step of the simulation, so the render's timing is ignored
      */
     @Override
     public void endScoreState() {
+        if(lockstep)
+            return;
+
         currentState = matchState.KickOff;
         barrierSide = !barrierSide;
         field.activateBarriers(barrierSide);
-        canRepositionAfterScore = true;
     }
 
     /**
@@ -325,17 +804,27 @@ public class MultiPlayMatch extends Match {
     }
 
     /**
-     * Updates the player position
+     * Updates the player position and velocity
+     * The client's player is reconciled instead, its velocity comes from the joystick
      * @param x the new x position
      * @param y the new y position
-     * @param name player's name
-     * @param team player's team
+     * @param vx the new x velocity
+     * @param vy the new y velocity
+     * @param id player's id in the room
      */
-    public void setPlayerPosition(float x, float y, String name, int team) {
-        if(team == 0)
-            homeTeam.changePlayerPosition(x, y, name);
-        else
-            visitorTeam.changePlayerPosition(x, y, name);
+    public void setPlayerPosition(float x, float y, float vx, float vy, int id) {
+        Player player = entities.get(id);
+        if(player == null)
+            return;
+
+        if(player == controlledPlayer && !rollback)
+            reconcile(x, y);
+        else {
+            player.updatePlayerPosition(x, y, vx, vy);
+            Interpolator interpolator = interpolators.get(id);
+            if(interpolator != null)
+                interpolator.add(snapshotTime, x, y);
+        }
     }
 
     /**
@@ -344,10 +833,86 @@ public class MultiPlayMatch extends Match {
      * @param y the new y position
      * @param vx the new x velocity position
      * @param vy the new y velocity position
-     * @param lastTouch the last player's name who touched the ball
      */
-    public void setBallPosition(float x, float y, float vx, float vy, String lastTouch) {
+    public void setBallPosition(float x, float y, float vx, float vy) {
         ball.updatePosition(x, y, vx, vy);
-        ball.lastTouch = lastTouch;
+        ballExtrapolator.add(snapshotTime, x, y, vx, vy);
+    }
+
+    /**
+     * Updates the ball from a snapshot
+     * The server only sends a new state when the extrapolation of the last one drifts, so the ball's body is
+     * placed where that extrapolation is at the snapshot's time
+     * @param x the state's x position
+     * @param y the state's y position
+     * @param vx the state's x velocity
+     * @param vy the state's y velocity
+     * @param tick the server tick the state was taken at
+     */
+    public void setBallState(float x, float y, float vx, float vy, long tick) {
+        float time = tick * Constants.GAME_SIMULATION_SPEED;
+        if(time != ballExtrapolator.getNewestTime())
+            ballExtrapolator.add(time, x, y, vx, vy);
+
+        Vector2 position = ballExtrapolator.sample(snapshotTime);
+        Vector2 velocity = ballExtrapolator.getVelocity();
+        ball.updatePosition(position.x, position.y, velocity.x, velocity.y);
+        ballTime = snapshotTime;
+    }
+
+    /**
+     * Sets the player who owns the ball, as granted by the server
+     * @param id the owner's id in the room, -1 if nobody owns it
+     */
+    public void setBallOwner(int id) {
+        ball.lastTouch = getEntityName(id);
+    }
+
+    /**
+     * The server decides who owns the ball, so a local touch only counts in lockstep, where the world is the same everywhere
+     * Otherwise the client's predicted player would fight the server's owner over it, so the client's own touches
+     * are only claimed, and the server checks them against its world as the client saw it
+     * @param name the player's name
+     */
+    @Override
+    protected void ballTouched(String name) {
+        if(lockstep) {
+            super.ballTouched(name);
+            return;
+        }
+
+        if(replaying || controlledPlayer == null || !name.equals(controlledPlayer.name))
+            return;
+
+        touchTick = Math.round(ballTime / Constants.GAME_SIMULATION_SPEED);
+        touchX = controlledPlayer.getBody().getPosition().x;
+        touchY = controlledPlayer.getBody().getPosition().y;
+        touchClaimed = true;
+    }
+
+    /**
+     * Returns the name of a player from its id
+     * @param id player's id in the room
+     * @return name to return, or an empty name if there's no such player
+     */
+    private String getEntityName(int id) {
+        Player player = entities.get(id);
+        return player == null ? "" : player.name;
+    }
+
+    /**
+     * The inputs of one lockstep tick, stepped when it leaves the queue
+     */
+    private class LockstepFrame implements Runnable {
+        float[] velocities;
+
+        LockstepFrame(float[] velocities) {
+            this.velocities = velocities;
+        }
+
+        @Override
+        public void run() {
+            stepLockstep(velocities);
+        }
     }
-}
\ No newline at end of file
+}
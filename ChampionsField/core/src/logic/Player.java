@@ -1,6 +1,5 @@
 package logic;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.ai.fsm.DefaultStateMachine;
 import com.badlogic.gdx.ai.fsm.StateMachine;
 import com.badlogic.gdx.ai.steer.Steerable;
@@ -47,6 +46,7 @@ public class Player implements Coordinates, Steerable<Vector2>{
 
     //ONLINE VARIABLES ONLY
     boolean isControlledPlayer;
+    int id;
 
     /**
      * Constructor for the player
@@ -311,14 +311,25 @@ public class Player implements Coordinates, Steerable<Vector2>{
 
     /**
      * ONLINE ONLY
-     * Updates player's position
+     * Returns the id the server gave the player in its room
+     * @return id to return
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * ONLINE ONLY
+     * Updates player's position and velocity
      * @param x the new x position
      * @param y the new y position
+     * @param vx the new x velocity
+     * @param vy the new y velocity
      */
-    public void updatePlayerPosition(float x, float y) {
+    public void updatePlayerPosition(float x, float y, float vx, float vy) {
         body.setTransform(x, y, 0);
         setPositionToBody();
-        body.setLinearVelocity(0, 0);
+        body.setLinearVelocity(vx, vy);
     }
 
     /*
@@ -331,8 +342,8 @@ public class Player implements Coordinates, Steerable<Vector2>{
      */
     @Override
     public Vector2 getScreenCoordinates() {
-        float x = getPosition().x * 100f + Gdx.graphics.getWidth()/2 - radius*100f;
-        float y = getPosition().y * 100f + Gdx.graphics.getHeight()/2 - radius*100f;
+        float x = getPosition().x * Constants.BOX_TO_SCREEN_WIDTH + Constants.ScreenWidth/2 - radius*Constants.BOX_TO_SCREEN_WIDTH;
+        float y = getPosition().y * Constants.BOX_TO_SCREEN_HEIGHT + Constants.ScreenHeight/2 - radius*Constants.BOX_TO_SCREEN_HEIGHT;
         return new Vector2(x, y);
     }
 
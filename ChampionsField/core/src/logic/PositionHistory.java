@@ -0,0 +1,105 @@
+package logic;
+
+import com.badlogic.gdx.math.Vector2;
+
+public class PositionHistory {
+    //Ring of ticks, each one with the position of every body by id
+    long[] ticks;
+    int[][] ids;
+    float[][] x, y;
+    int[] counts;
+    int first;
+    int size;
+    Vector2 position;
+
+    /**
+     * Constructor for the history
+     * @param capacity number of ticks kept, the oldest one is dropped when it's full
+     * @param bodies most bodies stored in one tick
+     */
+    public PositionHistory(int capacity, int bodies) {
+        ticks = new long[capacity];
+        ids = new int[capacity][bodies];
+        x = new float[capacity][bodies];
+        y = new float[capacity][bodies];
+        counts = new int[capacity];
+        first = 0;
+        size = 0;
+        position = new Vector2();
+    }
+
+    /**
+     * Starts storing the positions of a tick, it must follow the last one
+     * @param tick the tick
+     */
+    public void add(long tick) {
+        if(size > 0 && tick != ticks[index(size - 1)] + 1)
+            clear();
+
+        if(size == ticks.length) {
+            first = index(1);
+            size--;
+        }
+
+        int index = index(size);
+        ticks[index] = tick;
+        counts[index] = 0;
+        size++;
+    }
+
+    /**
+     * Stores a body's position in the newest tick
+     * @param id the body's id
+     * @param x the body's x position
+     * @param y the body's y position
+     */
+    public void put(int id, float x, float y) {
+        int index = index(size - 1);
+        int count = counts[index];
+        if(count == ids[index].length)
+            return;
+
+        ids[index][count] = id;
+        this.x[index][count] = x;
+        this.y[index][count] = y;
+        counts[index]++;
+    }
+
+    /**
+     * Returns a body's position at a tick
+     * @param tick the tick
+     * @param id the body's id
+     * @return position to return, it's reused by the next call, or null if the tick or the body aren't stored
+     */
+    public Vector2 get(long tick, int id) {
+        if(size == 0)
+            return null;
+
+        long offset = tick - ticks[first];
+        if(offset < 0 || offset >= size)
+            return null;
+
+        int index = index((int) offset);
+        for(int i = 0; i < counts[index]; i++)
+            if(ids[index][i] == id)
+                return position.set(x[index][i], y[index][i]);
+        return null;
+    }
+
+    /**
+     * Forgets every tick
+     */
+    public void clear() {
+        first = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the position of a tick in the ring
+     * @param offset the tick's offset from the oldest one
+     * @return index to return
+     */
+    private int index(int offset) {
+        return (first + offset) % ticks.length;
+    }
+}
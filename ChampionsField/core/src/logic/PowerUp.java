@@ -11,12 +11,14 @@ public class PowerUp implements Coordinates{
     Vector2 position;
     Constants.powerUpType type;
     boolean active;
+    Random random;
 
     /**
      * Constructor for the power up
+     * @param random where the power up's types and positions are drawn from
      */
-    public PowerUp() {
-        Random r = new Random();
+    public PowerUp(Random random) {
+        this.random = random;
         active = false;
     }
 
@@ -28,8 +30,7 @@ public class PowerUp implements Coordinates{
         if(timeElapsed == Constants.PowerfirstAppear || timeElapsed == Constants.PowerLastAppear)
             active = true;
 
-        Random r = new Random();
-        int aux = r.nextInt(3) + 1;
+        int aux = random.nextInt(3) + 1;
         switch (aux){
             case 1:
                 type = Constants.powerUpType.TeamSpeedInc;
@@ -42,10 +43,10 @@ public class PowerUp implements Coordinates{
                 break;
         }
 
-        float fieldWidth = Constants.ScreenWidth - 260*Constants.widthScale;
-        float fieldHeight = Constants.ScreenHeight - 60*Constants.heightScale;
-        float x = r.nextInt((int)(fieldWidth));
-        float y = r.nextInt((int)(fieldHeight));
+        float fieldWidth = Constants.FIELD_WIDTH - 260*Constants.fieldWidthScale;
+        float fieldHeight = Constants.FIELD_HEIGHT - 60*Constants.fieldHeightScale;
+        float x = random.nextInt((int)(fieldWidth));
+        float y = random.nextInt((int)(fieldHeight));
         x -= fieldWidth/2;
         y -= fieldHeight/2;
         position = new Vector2(x * Constants.WORLD_TO_BOX, y * Constants.WORLD_TO_BOX);
@@ -97,8 +98,8 @@ public class PowerUp implements Coordinates{
      */
     @Override
     public Vector2 getScreenCoordinates() {
-        float x = getPosition().x * Constants.BOX_TO_WORLD + Constants.ScreenWidth/2;
-        float y = getPosition().y * Constants.BOX_TO_WORLD + Constants.ScreenHeight/2;
+        float x = getPosition().x * Constants.BOX_TO_SCREEN_WIDTH + Constants.ScreenWidth/2;
+        float y = getPosition().y * Constants.BOX_TO_SCREEN_HEIGHT + Constants.ScreenHeight/2;
         return new Vector2(x, y);
     }
 }
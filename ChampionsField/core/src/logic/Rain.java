@@ -1,6 +1,5 @@
 package logic;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.math.Vector2;
 
 import java.util.ArrayList;
@@ -23,6 +22,16 @@ public class Rain {
      * @param height the screen height
      */
     public Rain(float width, float height) {
+        this(width, height, new Random().nextLong());
+    }
+
+    /**
+     * Constructor for the rain, its periods follow from the seed
+     * @param width the screen width
+     * @param height the screen height
+     * @param seed the seed of the raining periods
+     */
+    public Rain(float width, float height, long seed) {
         this.width = width;
         this.height = height;
         position = new ArrayList<Vector2>();
@@ -58,7 +67,18 @@ public class Rain {
         fallingSpeed = 14f;
         deltaTime = 0;
         isRaining = false;
-        random = new Random();
+        random = new Random(seed);
+        nextRainingPeriod = random.nextInt(50) + 1;
+    }
+
+    /**
+     * Restarts the rain with a seed, so every client that shares it sees the same periods
+     * @param seed the seed of the raining periods
+     */
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+        deltaTime = 0;
+        isRaining = false;
         nextRainingPeriod = random.nextInt(50) + 1;
     }
 
@@ -87,8 +107,9 @@ public class Rain {
 
     /**
      * Updates the rain
+     * @param dt the delta time
      */
-    public void update() {
+    public void update(float dt) {
         if(deltaTime >= nextRainingPeriod) {
             if(isRaining) isRaining = false;
             else isRaining = true;
@@ -104,7 +125,7 @@ public class Rain {
                 position.get(i).y -= fallingSpeed;
             }
         }
-        deltaTime += Gdx.graphics.getDeltaTime();
+        deltaTime += dt;
     }
 
     /**
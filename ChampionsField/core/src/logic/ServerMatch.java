@@ -0,0 +1,387 @@
+package logic;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.IntMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import utils.Constants;
+
+public class ServerMatch extends Match {
+    //Ticks of positions kept to check the clients' touches, half a second, older claims are rejected
+    static final int POSITION_HISTORY = 30;
+    //The ball's id in the history, like on the wire
+    static final int BALL_ID = -1;
+    //A claimed touch may be this much further than the rewound ball, and the claimed position this far from the server's
+    static final float TOUCH_TOLERANCE = 0.1f;
+    static final float POSITION_TOLERANCE = 0.25f;
+    IntMap<Player> entities;
+    HashMap<String, Integer> entityIds;
+    IntMap<Vector2> inputs;
+    boolean barrierSide;
+    boolean started;
+    float scoreTime;
+    long ticks;
+    PositionHistory positions;
+    //Tick of the last touch, a claim must be newer to replace it
+    long lastTouchTick;
+
+    //Events of the last tick, consumed by the server after each step
+    boolean scored;
+    int scoringTeam;
+    boolean positionsReset;
+
+    /**
+     * Constructor for the server's match
+     * Owns a headless physics world that is the single source of truth for every client in the room
+     * @param barrierSide match's initial barrier side
+     */
+    public ServerMatch(boolean barrierSide) {
+        super(0);
+
+        homeTeam = new Team("Benfica", Team.TeamState.Attacking, w);
+        visitorTeam = new Team("Porto", Team.TeamState.Defending, w);
+
+        entities = new IntMap<Player>();
+        entityIds = new HashMap<String, Integer>();
+        inputs = new IntMap<Vector2>();
+        this.barrierSide = barrierSide;
+        field.activateBarriers(barrierSide);
+        started = false;
+        scoreTime = 0;
+        ticks = 0;
+        positions = new PositionHistory(POSITION_HISTORY, Constants.NUMBER_PLAYER_ONLINE * 2 + 1);
+        lastTouchTick = 0;
+        elapsedTime = 0;
+        scored = false;
+        positionsReset = false;
+    }
+
+    /**
+     * Adds a player to the server's match
+     * @param id player's id in the room
+     * @param name player's name
+     * @param team player's team
+     */
+    public void addPlayer(int id, String name, int team) {
+        Player player;
+        if(team == 0)
+            player = homeTeam.addPlayer(id, name, team, playerSize, false, w);
+        else
+            player = visitorTeam.addPlayer(id, name, team, playerSize, false, w);
+
+        entities.put(id, player);
+        entityIds.put(name, id);
+        inputs.put(id, new Vector2());
+        numberOfPlayers++;
+    }
+
+    /**
+     * Removes a player from the server's match
+     * @param id player's id in the room
+     */
+    public void removePlayer(int id) {
+        Player player = entities.remove(id);
+        if(player == null)
+            return;
+
+        if(player.team == 0)
+            homeTeam.removePlayer(player);
+        else
+            visitorTeam.removePlayer(player);
+
+        entityIds.remove(player.name);
+        inputs.remove(id);
+        numberOfPlayers--;
+    }
+
+    /**
+     * Stores the last joystick input sent by a client, it's applied on every tick until a new one arrives
+     * @param id player's id in the room
+     * @param x joystick x velocity
+     * @param y joystick y velocity
+     */
+    public void setPlayerInput(int id, float x, float y) {
+        Vector2 input = inputs.get(id);
+        if(input == null)
+            return;
+
+        input.set(clampSpeed(x), clampSpeed(y));
+    }
+
+    /**
+     * Starts the match's clock, ticks before that only keep the world idle
+     */
+    @Override
+    public void startTimer() {
+        started = true;
+        ticks = 0;
+        positions.clear();
+        lastTouchTick = 0;
+    }
+
+    /**
+     * Returns true if the match's clock is running
+     * @return value to return
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * Advances the match one fixed step
+     */
+    public void tick() {
+        updateMatch(0, 0, Constants.GAME_SIMULATION_SPEED);
+    }
+
+    /**
+     * Advances only the match's clock one fixed step, for a room whose clients simulate the match themselves
+     */
+    public void tickClock() {
+        if(started) {
+            ticks++;
+            elapsedTime = (long) (ticks * Constants.GAME_SIMULATION_SPEED);
+        }
+    }
+
+    /**
+     * Updates the server's match, such as the state, time elapsed and the world's physics
+     * The clients' velocities come from their stored inputs, so x and y are ignored
+     * @param x ignored
+     * @param y ignored
+     * @param dt the delta time
+     */
+    @Override
+    public void updateMatch(float x, float y, float dt) {
+        switch (currentState) {
+            case KickOff: {
+                ball.body.setAwake(true);
+                if (ball.body.getPosition().x != 0 || ball.body.getPosition().y != 0) {
+                    field.deactivateBarriers();
+                    homeTeam.teamState = Team.TeamState.Playing;
+                    visitorTeam.teamState = Team.TeamState.Playing;
+                    currentState = matchState.Play;
+                }
+                applyInputs(homeTeam);
+                applyInputs(visitorTeam);
+                break;
+            }
+            case Play: {
+                applyInputs(homeTeam);
+                applyInputs(visitorTeam);
+                break;
+            }
+            case Score:{
+                scoreTime += dt;
+                if(scoreTime >= Constants.EXPLOSION_DURATION)
+                    endScoreState();
+                break;
+            }
+        }
+
+        w.step(dt, 6, 2);
+
+        if(started) {
+            ticks++;
+            elapsedTime = (long) (ticks * dt);
+            recordPositions();
+        }
+    }
+
+    /**
+     * Stores the positions of every player and of the ball at the current tick
+     */
+    private void recordPositions() {
+        positions.add(ticks);
+        for(IntMap.Entry<Player> entry : entities.entries())
+            positions.put(entry.key, entry.value.body.getPosition().x, entry.value.body.getPosition().y);
+        positions.put(BALL_ID, ball.body.getPosition().x, ball.body.getPosition().y);
+    }
+
+    /**
+     * Checks a client's claim that its player touched the ball, against the positions at the tick it saw the ball at
+     * A client sees the ball as it was on the server a while ago, so a touch it sees may never happen here
+     * The claim holds if the ball was within reach of the claimed position at that tick, and the server's player was
+     * near that position at that tick or after it, as the client's own player runs ahead of the ball it sees
+     * @param id the claiming player's id in the room
+     * @param tick the tick of the ball the client touched
+     * @param x the client's player x position when it touched the ball
+     * @param y the client's player y position when it touched the ball
+     * @return true if the player became the last one who touched the ball
+     */
+    public boolean claimTouch(int id, long tick, float x, float y) {
+        if(currentState == matchState.Score || tick <= lastTouchTick || tick > ticks)
+            return false;
+
+        Player player = entities.get(id);
+        Vector2 ballPosition = positions.get(tick, BALL_ID);
+        if(player == null || ballPosition == null)
+            return false;
+
+        float reach = player.radius + ball.radius + TOUCH_TOLERANCE;
+        if(ballPosition.dst2(x, y) > reach * reach)
+            return false;
+
+        boolean near = false;
+        for(long t = tick; t <= ticks && !near; t++) {
+            Vector2 position = positions.get(t, id);
+            near = position != null && position.dst2(x, y) <= POSITION_TOLERANCE * POSITION_TOLERANCE;
+        }
+        if(!near)
+            return false;
+
+        ball.lastTouch = player.name;
+        lastTouchTick = tick;
+        return true;
+    }
+
+    /**
+     * Remembers the tick of every touch the server's world sees, the step being simulated is the next tick
+     * @param name the player's name
+     */
+    @Override
+    protected void ballTouched(String name) {
+        super.ballTouched(name);
+        lastTouchTick = ticks + 1;
+    }
+
+    /**
+     * Applies the stored inputs to the team's players
+     * @param team the team to update
+     */
+    private void applyInputs(Team team) {
+        for(Player player : team.players) {
+            Vector2 input = inputs.get(player.id);
+            if(input != null)
+                player.body.setLinearVelocity(input.x, input.y);
+        }
+    }
+
+    /**
+     * Limits a client's velocity to the maximum a joystick can produce
+     * @param v velocity to clamp
+     * @return clamped velocity
+     */
+    private float clampSpeed(float v) {
+        if(v > Constants.PLAYERS_SPEED)
+            return Constants.PLAYERS_SPEED;
+        if(v < -Constants.PLAYERS_SPEED)
+            return -Constants.PLAYERS_SPEED;
+        return v;
+    }
+
+    /**
+     * Changes the team's states and sets the information about the goal scored
+     * @param defendingTeam the team that scored
+     * @param attackingTeam the team that conceded
+     * @param lastTouch the last player who touched the ball
+     */
+    @Override
+    public void teamScored(Team defendingTeam, Team attackingTeam, String lastTouch) {
+        if(currentState == matchState.Score)
+            return;
+
+        currentState = matchState.Score;
+        scoreTime = 0;
+        ArrayList<String> attackingTeamNames = attackingTeam.getPlayerNames();
+
+        //auto goal
+        if (attackingTeamNames.contains(lastTouch)) {
+            attackingTeam.autoGoal(lastTouch);
+            defendingTeam.score++;
+        } else defendingTeam.goalScored(lastTouch);
+
+        defendingTeam.teamState = Team.TeamState.Defending;
+        attackingTeam.teamState = Team.TeamState.Attacking;
+
+        scored = true;
+        scoringTeam = defendingTeam == homeTeam ? 0 : 1;
+    }
+
+    /**
+     * Called after the score animation time
+     * Repositions the players and the ball and switches the kickoff side
+     */
+    @Override
+    public void endScoreState() {
+        currentState = matchState.KickOff;
+        homeTeam.repositionTeam();
+        visitorTeam.repositionTeam();
+        ball.reposition();
+        ball.lastTouch = "";
+        lastTouchTick = ticks;
+        barrierSide = !barrierSide;
+        field.activateBarriers(barrierSide);
+        positionsReset = true;
+    }
+
+    /**
+     * Statistics are saved by each client, the server has nothing to persist
+     */
+    @Override
+    public void endGame() {
+
+    }
+
+    /**
+     * Returns true once after a goal is scored
+     * @return value to return
+     */
+    public boolean consumeScored() {
+        boolean value = scored;
+        scored = false;
+        return value;
+    }
+
+    /**
+     * Returns the team that scored the last goal
+     * @return 0 for the home team, 1 for the visitor team
+     */
+    public int getScoringTeam() {
+        return scoringTeam;
+    }
+
+    /**
+     * Returns true once after the positions were reset for a kickoff
+     * @return value to return
+     */
+    public boolean consumePositionsReset() {
+        boolean value = positionsReset;
+        positionsReset = false;
+        return value;
+    }
+
+    /**
+     * Returns the id of the last player who touched the ball
+     * @return id to return, or -1 if nobody touched it since the kickoff
+     */
+    public int getLastTouchId() {
+        Integer id = entityIds.get(ball.lastTouch);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the number of steps since the match started
+     * @return tick to return
+     */
+    public long getTick() {
+        return ticks;
+    }
+
+    /**
+     * Returns the current barrier side
+     * @return barrier side to return
+     */
+    public boolean getBarrierSide() {
+        return barrierSide;
+    }
+
+    /**
+     * Frees the physics world
+     */
+    public void dispose() {
+        w.dispose();
+    }
+}
@@ -11,16 +11,27 @@ import utils.Constants;
 public class SinglePlayMatch extends Match{
 
     PowerUp powerUp;
+    Random random;
 
     /**
      * Constructor for the match
      * @param numberOfPlayers number of players in each team
      */
     public SinglePlayMatch(int numberOfPlayers) {
+        this(numberOfPlayers, new Random().nextLong());
+    }
+
+    /**
+     * Constructor for the match, every random choice in it follows from the seed
+     * @param numberOfPlayers number of players in each team
+     * @param seed the match's seed
+     */
+    public SinglePlayMatch(int numberOfPlayers, long seed) {
         super(numberOfPlayers);
 
-        Random r = new Random();
-        int aux = r.nextInt(2);
+        random = new Random(seed);
+        rain.setSeed(random.nextLong());
+        int aux = random.nextInt(2);
         if(aux == 0){
             homeTeam = new Team(numberOfPlayers, playerSize, "Benfica", Team.TeamState.Attacking, w);
             visitorTeam = new Team(numberOfPlayers, playerSize, "Porto", Team.TeamState.Defending, w);
@@ -30,7 +41,7 @@ public class SinglePlayMatch extends Match{
         }
         homeTeam.controlPlayer(0);
 
-        powerUp = new PowerUp();
+        powerUp = new PowerUp(random);
     }
 
     /**
@@ -191,7 +202,7 @@ public class SinglePlayMatch extends Match{
             powerUp.checkPowerUpAppearance(elapsedTime);
         }
 
-        rain.update();
+        rain.update(dt);
         w.step(Constants.GAME_SIMULATION_SPEED, 6, 2);
 
         elapsedTime = ((System.currentTimeMillis() - startTime) / 1000);
@@ -328,6 +328,7 @@ public class Team {
     /**
      * ONLINE ONLY
      * Adds a new player to the team, and if that player is the controlled one, sets it
+     * @param id player's id in the room
      * @param name player's name
      * @param team player's team
      * @param size the size of the player in the physics world
@@ -335,11 +336,37 @@ public class Team {
      * @param w the world the player is added
      * @param controlledPlayerTeam the team the controlled player belongs to
      * @param match the client's match
+     * @return the created player
      */
-    public void addPlayer(String name, int team, float size, boolean controlledPlayer, World w, int controlledPlayerTeam, MultiPlayMatch match) {
+    public Player addPlayer(int id, String name, int team, float size, boolean controlledPlayer, World w, int controlledPlayerTeam, MultiPlayMatch match) {
+        boolean controlled;
+
+        if(playerAlreadyControlled() || !controlledPlayer)
+            controlled = false;
+        else
+            controlled = true;
+
+        Player player = addPlayer(id, name, team, size, controlled, w);
+
+        if(controlled && player.team == controlledPlayerTeam)
+            match.setControlledPlayer(player);
+        return player;
+    }
+
+    /**
+     * ONLINE ONLY
+     * Adds a new player to the team at the next free kickoff position
+     * @param id player's id in the room
+     * @param name player's name
+     * @param team player's team
+     * @param size the size of the player in the physics world
+     * @param controlled is the player controlled by this device?
+     * @param w the world the player is added
+     * @return the created player
+     */
+    public Player addPlayer(int id, String name, int team, float size, boolean controlled, World w) {
         float x, y;
         int teamSide;
-        boolean controlled;
 
         if(team == 0)
             teamSide = 1;
@@ -347,42 +374,31 @@ public class Team {
             teamSide = -1;
 
         if(players.size() == 0) {
-            x = (Constants.ScreenWidth / 4) * teamSide;
+            x = (Constants.FIELD_WIDTH / 4) * teamSide;
             y = 0;
         } else {
-            x = ((Constants.ScreenWidth / 4) - (Constants.ScreenWidth / 6)) * teamSide;
+            x = ((Constants.FIELD_WIDTH / 4) - (Constants.FIELD_WIDTH / 6)) * teamSide;
             if(players.size() != 0)
-                y = (Constants.ScreenHeight  / 4) * teamSide;
+                y = (Constants.FIELD_HEIGHT  / 4) * teamSide;
             else
-                y = (-Constants.ScreenHeight  / 4) * teamSide;
+                y = (-Constants.FIELD_HEIGHT  / 4) * teamSide;
         }
 
-        if(playerAlreadyControlled() || !controlledPlayer)
-            controlled = false;
-        else
-            controlled = true;
-
         Player player = new Player(x, y, name, team, controlled, size);
+        player.id = id;
         player.addPhysics(w);
         players.add(player);
-
-        if(controlled && player.team == controlledPlayerTeam)
-            match.setControlledPlayer(player);
+        return player;
     }
 
     /**
      * ONLINE ONLY
-     * Removes a player from the client's match
-     * @param name player's name
+     * Removes a player from the match
+     * @param player the player to remove
      */
-    public void removePlayer(String name) {
-        for(Player player : players) {
-            if(player.name.equals(name)) {
-                player.getBody().getWorld().destroyBody(player.getBody());
-                players.remove(player);
-                break;
-            }
-        }
+    public void removePlayer(Player player) {
+        if(players.remove(player))
+            player.getBody().getWorld().destroyBody(player.getBody());
     }
 
     /**
@@ -399,22 +415,6 @@ public class Team {
         return false;
     }
 
-    /**
-     * ONLINE ONLY
-     * Updates a player position
-     * @param x player's new x position
-     * @param y player's new y position
-     * @param name player's name
-     */
-    public void changePlayerPosition(float x, float y, String name) {
-        for(Player player : players) {
-            if(player.name.equals(name)) {
-                player.updatePlayerPosition(x, y);
-                break;
-            }
-        }
-    }
-
     /*
     * END OF THE MULTPLAYER FUNCTIONS
     * */
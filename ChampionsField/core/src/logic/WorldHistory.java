@@ -0,0 +1,181 @@
+package logic;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+
+public class WorldHistory {
+    //Floats kept per body: position, angle, velocity, angular velocity and awake flag
+    static final int BODY_FIELDS = 7;
+
+    Body[] bodies;
+    int numberBodies;
+
+    //Ring of frames, each one is the world's state before a local step and the input of that step
+    float[][] states;
+    long[] ticks;
+    float[] inputX, inputY;
+    Match.matchState[] matchStates;
+    int first;
+    int size;
+
+    /**
+     * Constructor for the history
+     * @param capacity number of steps kept, the oldest one is dropped when it's full
+     */
+    public WorldHistory(int capacity) {
+        bodies = new Body[0];
+        numberBodies = 0;
+        states = new float[capacity][0];
+        ticks = new long[capacity];
+        inputX = new float[capacity];
+        inputY = new float[capacity];
+        matchStates = new Match.matchState[capacity];
+        first = 0;
+        size = 0;
+    }
+
+    /**
+     * Takes the world's dynamic bodies as the ones to save, and forgets every frame
+     * Must be called whenever a body is created or destroyed, as the frames refer to the old ones
+     * @param w the world
+     */
+    public void track(World w) {
+        Array<Body> worldBodies = new Array<Body>();
+        w.getBodies(worldBodies);
+        numberBodies = 0;
+        for(Body body : worldBodies)
+            if(body.getType() == BodyDef.BodyType.DynamicBody)
+                numberBodies++;
+
+        bodies = new Body[numberBodies];
+        int i = 0;
+        for(Body body : worldBodies)
+            if(body.getType() == BodyDef.BodyType.DynamicBody)
+                bodies[i++] = body;
+
+        for(int j = 0; j < states.length; j++)
+            states[j] = new float[numberBodies * BODY_FIELDS];
+        clear();
+    }
+
+    /**
+     * Saves the world's state before a local step
+     * @param tick the server tick that simulates this step, when its input reaches the server
+     * @param inputX the controlled player's x velocity in the step
+     * @param inputY the controlled player's y velocity in the step
+     * @param matchState the match's state
+     */
+    public void save(long tick, float inputX, float inputY, Match.matchState matchState) {
+        if(size == states.length) {
+            first = index(1);
+            size--;
+        }
+
+        int index = index(size);
+        ticks[index] = tick;
+        this.inputX[index] = inputX;
+        this.inputY[index] = inputY;
+        size++;
+        update(size - 1, matchState);
+    }
+
+    /**
+     * Replaces a frame's state with the world's current one, after it was simulated again
+     * @param frame the frame's offset from the oldest one
+     * @param matchState the match's state
+     */
+    public void update(int frame, Match.matchState matchState) {
+        int index = index(frame);
+        float[] state = states[index];
+        for(int i = 0; i < numberBodies; i++) {
+            Body body = bodies[i];
+            int offset = i * BODY_FIELDS;
+            state[offset] = body.getPosition().x;
+            state[offset + 1] = body.getPosition().y;
+            state[offset + 2] = body.getAngle();
+            state[offset + 3] = body.getLinearVelocity().x;
+            state[offset + 4] = body.getLinearVelocity().y;
+            state[offset + 5] = body.getAngularVelocity();
+            state[offset + 6] = body.isAwake() ? 1 : 0;
+        }
+        matchStates[index] = matchState;
+    }
+
+    /**
+     * Drops every frame the server already simulated and puts the world back in the oldest one left
+     * @param tick the server tick of the snapshot, every step up to it is in its positions
+     * @return number of frames to simulate again to reach the present
+     */
+    public int rewind(long tick) {
+        while(size > 0 && ticks[first] <= tick) {
+            first = index(1);
+            size--;
+        }
+
+        if(size > 0)
+            restore(0);
+        return size;
+    }
+
+    /**
+     * Puts the world's bodies in a frame's state
+     * @param frame the frame's offset from the oldest one
+     */
+    public void restore(int frame) {
+        float[] state = states[index(frame)];
+        for(int i = 0; i < numberBodies; i++) {
+            Body body = bodies[i];
+            int offset = i * BODY_FIELDS;
+            body.setTransform(state[offset], state[offset + 1], state[offset + 2]);
+            body.setLinearVelocity(state[offset + 3], state[offset + 4]);
+            body.setAngularVelocity(state[offset + 5]);
+            body.setAwake(state[offset + 6] != 0);
+        }
+    }
+
+    /**
+     * Returns the x velocity of the controlled player in a frame
+     * @param frame the frame's offset from the oldest one
+     * @return velocity to return
+     */
+    public float getInputX(int frame) {
+        return inputX[index(frame)];
+    }
+
+    /**
+     * Returns the y velocity of the controlled player in a frame
+     * @param frame the frame's offset from the oldest one
+     * @return velocity to return
+     */
+    public float getInputY(int frame) {
+        return inputY[index(frame)];
+    }
+
+    /**
+     * Returns the match's state in a frame
+     * @param frame the frame's offset from the oldest one
+     * @return state to return
+     */
+    public Match.matchState getMatchState(int frame) {
+        return matchStates[index(frame)];
+    }
+
+    /**
+     * Forgets every frame
+     */
+    public void clear() {
+        first = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the position of a frame in the ring
+     * @param offset the frame's offset from the oldest one
+     * @return index to return
+     */
+    private int index(int offset) {
+        return (first + offset) % states.length;
+    }
+}
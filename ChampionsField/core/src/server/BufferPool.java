@@ -0,0 +1,50 @@
+package server;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BufferPool {
+    int bufferSize;
+    int maxPooled;
+    ConcurrentLinkedQueue<ByteBuffer> buffers;
+    AtomicInteger pooled;
+
+    /**
+     * Constructor for a pool of direct buffers, which are expensive to allocate and are reused instead
+     * @param bufferSize size of each buffer
+     * @param maxPooled maximum number of idle buffers kept, the others are left to the garbage collector
+     */
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+        buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+        pooled = new AtomicInteger();
+    }
+
+    /**
+     * Takes an empty buffer from the pool, allocating one if it's empty
+     * @return buffer to return
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if(buffer == null)
+            return ByteBuffer.allocateDirect(bufferSize);
+
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Gives a buffer back, it must not be used afterwards
+     * @param buffer the buffer
+     */
+    public void release(ByteBuffer buffer) {
+        if(pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+        buffers.offer(buffer);
+    }
+}
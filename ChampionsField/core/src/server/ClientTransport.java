@@ -0,0 +1,24 @@
+package server;
+
+import java.io.IOException;
+
+/**
+ * The client's side of the network, the client is the only peer it talks to the server through
+ */
+public interface ClientTransport extends Peer {
+    /**
+     * Sets who is told about the connection and the packets
+     * @param listener the listener
+     */
+    void setListener(TransportListener listener);
+
+    /**
+     * Connects to a server, blocking until both channels are registered
+     * @param timeout maximum time to wait in milliseconds
+     * @param host the server's address
+     * @param tcpPort the server's reliable channel port
+     * @param udpPort the server's unreliable channel port
+     * @throws IOException if the server can't be reached
+     */
+    void connect(int timeout, String host, int tcpPort, int udpPort) throws IOException;
+}
@@ -0,0 +1,94 @@
+package server;
+
+/**
+ * Estimates the offset between this machine's clock and the server's, like NTP does
+ * Each ping is stamped when it's sent and when its answer is back, and the server stamps the answer
+ * Taking the way there as long as the way back, the server's stamp was taken halfway through the round trip
+ * The sample with the shortest round trip among the last few waited the least in queues, so its offset is used
+ */
+public class ClockSync {
+    static final int SAMPLES = 8;
+    long[] offsets;
+    long[] roundTrips;
+    int next;
+    int count;
+    volatile long offset;
+    volatile long roundTrip;
+    volatile boolean synced;
+
+    public ClockSync() {
+        offsets = new long[SAMPLES];
+        roundTrips = new long[SAMPLES];
+        next = 0;
+        count = 0;
+        offset = 0;
+        roundTrip = 0;
+        synced = false;
+    }
+
+    /**
+     * Returns the time of the clock every stamp is taken with, it's monotonic but its origin is arbitrary
+     * @return time to return, in microseconds
+     */
+    public static long now() {
+        return System.nanoTime() / 1000;
+    }
+
+    /**
+     * Adds the stamps of a ping that came back
+     * @param sent the local time the ping was sent at
+     * @param serverTime the server's time when it answered
+     * @param received the local time the answer arrived at
+     */
+    public synchronized void addSample(long sent, long serverTime, long received) {
+        long sampleRoundTrip = received - sent;
+        if(sampleRoundTrip < 0)
+            return;
+
+        offsets[next] = serverTime - (sent + sampleRoundTrip / 2);
+        roundTrips[next] = sampleRoundTrip;
+        next = (next + 1) % SAMPLES;
+        count = Math.min(count + 1, SAMPLES);
+
+        int best = 0;
+        for(int i = 1; i < count; i++)
+            if(roundTrips[i] < roundTrips[best])
+                best = i;
+        offset = offsets[best];
+        roundTrip = roundTrips[best];
+        synced = count == SAMPLES;
+    }
+
+    /**
+     * Returns true once the window of samples is full, until then pings should be sent more often
+     * @return value to return
+     */
+    public boolean isSynced() {
+        return synced;
+    }
+
+    /**
+     * Returns the server's clock minus the local one
+     * @return offset to return, in microseconds
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the round trip of the sample the offset comes from
+     * @return round trip to return, in microseconds
+     */
+    public long getRoundTrip() {
+        return roundTrip;
+    }
+
+    /**
+     * Converts a time of the server's clock to the local one
+     * @param serverTime the time in the server's clock
+     * @return time to return, in the clock of now()
+     */
+    public long toLocal(long serverTime) {
+        return serverTime - offset;
+    }
+}
@@ -0,0 +1,242 @@
+package server;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.Listener;
+import com.esotericsoftware.kryonet.Server;
+import com.esotericsoftware.minlog.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import utils.Constants;
+
+/**
+ * Maps rooms to the server processes, the shards, that host them and tells clients where to connect
+ * Shards report their load every second, new rooms and matchmade players go to the least loaded one
+ * Every callback runs on KryoNet's single update thread, so nothing here is shared between threads
+ * Usage: Directory [port]
+ */
+public class Directory {
+    //A room given to a shard is kept for it this long, until the shard reports hosting it
+    //Also how long players sent to a shard may take to get there before they're given up on
+    static final long ASSIGNMENT_TIMEOUT = 10000;
+    //Large enough for the report of a shard hosting as many rooms as it can
+    static final int WRITE_BUFFER_SIZE = 65536;
+    static final int OBJECT_BUFFER_SIZE = 65536;
+
+    static class Shard {
+        int index;
+        Connection connection;
+        Network.ShardReport report;
+        //Matchmade players sent to the shard, the ones its report doesn't count yet are on their way
+        int sent;
+        long lastArrival;
+
+        int getInFlight() {
+            return sent - report.joinRequests;
+        }
+
+        /**
+         * Returns the free matchmaking slots, counting the players on their way
+         * A player sent to a shard without free slots opens a new room there, which waits for the next ones
+         * @return number to return
+         */
+        int getOpenSlots() {
+            int slots = report.openSlots;
+            for(int i = 0; i < getInFlight(); i++)
+                slots = slots > 0 ? slots - 1 : Constants.NUMBER_PLAYER_ONLINE * 2 - 1;
+            return slots;
+        }
+    }
+
+    Server server;
+    ArrayList<Shard> shards;
+    HashMap<Integer, Shard> roomShards;
+    HashMap<Integer, Long> assignedAt;
+
+    /**
+     * Constructor for the directory
+     * @param port the port shards and clients connect to
+     * @throws IOException if the port can't be bound
+     */
+    public Directory(int port) throws IOException {
+        shards = new ArrayList<Shard>();
+        roomShards = new HashMap<Integer, Shard>();
+        assignedAt = new HashMap<Integer, Long>();
+
+        server = new Server(WRITE_BUFFER_SIZE, OBJECT_BUFFER_SIZE);
+        Network.registerPackets(server);
+        server.addListener(new Listener() {
+            @Override
+            public void received(Connection connection, Object object) {
+                if(object instanceof Network.ShardReport)
+                    report(connection, (Network.ShardReport) object);
+
+                if(object instanceof Network.ShardLookup)
+                    lookup(connection, (Network.ShardLookup) object);
+            }
+
+            @Override
+            public void disconnected(Connection connection) {
+                Shard shard = getShard(connection);
+                if(shard == null)
+                    return;
+
+                shards.remove(shard);
+                roomShards.values().removeAll(Collections.singleton(shard));
+                Log.info("[DIRECTORY]: Shard " + shard.index + " left, " + shards.size() + " remaining");
+            }
+        });
+        server.bind(port);
+        server.start();
+    }
+
+    /**
+     * Updates a shard's load and rooms, registering the shard on its first report
+     * @param connection the shard's connection
+     * @param report the shard's report
+     */
+    private void report(Connection connection, Network.ShardReport report) {
+        Shard shard = getShard(connection);
+        if(shard == null) {
+            shard = new Shard();
+            shard.index = freeIndex();
+            shard.connection = connection;
+            shards.add(shard);
+
+            Network.ShardRegistered registered = new Network.ShardRegistered();
+            registered.index = shard.index;
+            connection.sendTCP(registered);
+            Log.info("[DIRECTORY]: Shard " + shard.index + " joined at " + report.host + ":" + report.tcpPort);
+        }
+        //Reports lag behind the players sent, so they only update what the directory can't count itself
+        long now = System.currentTimeMillis();
+        if(shard.report == null || report.joinRequests != shard.report.joinRequests)
+            shard.lastArrival = now;
+        shard.report = report;
+        if(shard.getInFlight() < 0 || (shard.getInFlight() > 0 && now - shard.lastArrival > ASSIGNMENT_TIMEOUT))
+            shard.sent = report.joinRequests;
+
+        //Forgets the shard's rooms that closed, but not the ones given to it that it didn't open yet
+        Iterator<Map.Entry<Integer, Shard>> iterator = roomShards.entrySet().iterator();
+        while(iterator.hasNext()) {
+            Map.Entry<Integer, Shard> entry = iterator.next();
+            Long assigned = assignedAt.get(entry.getKey());
+            if(entry.getValue() == shard && (assigned == null || now - assigned > ASSIGNMENT_TIMEOUT)) {
+                iterator.remove();
+                assignedAt.remove(entry.getKey());
+            }
+        }
+        for(int room : report.rooms) {
+            roomShards.put(room, shard);
+            assignedAt.remove(room);
+        }
+    }
+
+    /**
+     * Tells a client which shard to connect to
+     * A room already hosted stays on its shard, a new one goes to the least loaded shard
+     * A matchmade player goes to a shard that has rooms waiting for players, so they fill up before new ones open
+     * @param connection the client's connection
+     * @param lookup the client's lookup
+     */
+    private void lookup(Connection connection, Network.ShardLookup lookup) {
+        Shard shard;
+        if(lookup.room == MPClient.ANY_ROOM) {
+            shard = getWaitingShard();
+            if(shard == null)
+                shard = getLeastLoadedShard();
+        } else {
+            shard = roomShards.get(lookup.room);
+            if(shard == null) {
+                shard = getLeastLoadedShard();
+                if(shard != null) {
+                    roomShards.put(lookup.room, shard);
+                    assignedAt.put(lookup.room, System.currentTimeMillis());
+                }
+            }
+        }
+
+        if(shard == null) {
+            connection.sendTCP(new Network.MatchFull());
+            return;
+        }
+
+        if(lookup.room == MPClient.ANY_ROOM)
+            shard.sent++;
+
+        Network.ShardAssigned assigned = new Network.ShardAssigned();
+        assigned.room = lookup.room;
+        assigned.host = shard.report.host;
+        assigned.tcpPort = shard.report.tcpPort;
+        assigned.udpPort = shard.report.udpPort;
+        connection.sendTCP(assigned);
+    }
+
+    /**
+     * Returns a shard with free slots in its matchmaking rooms
+     * @return shard to return, or null if there's none
+     */
+    private Shard getWaitingShard() {
+        for(Shard shard : shards)
+            if(shard.getOpenSlots() > 0)
+                return shard;
+        return null;
+    }
+
+    /**
+     * Returns the shard with the fewest players, counting the players on their way
+     * @return shard to return, or null if no shard is registered
+     */
+    private Shard getLeastLoadedShard() {
+        Shard best = null;
+        for(Shard shard : shards)
+            if(best == null || shard.report.players + shard.getInFlight() < best.report.players + best.getInFlight())
+                best = shard;
+        return best;
+    }
+
+    private Shard getShard(Connection connection) {
+        for(Shard shard : shards)
+            if(shard.connection == connection)
+                return shard;
+        return null;
+    }
+
+    /**
+     * Returns the lowest index no shard uses, so a restarted shard takes the place of the one that left
+     * @return index to return
+     */
+    private int freeIndex() {
+        int index = 0;
+        boolean taken = true;
+        while(taken) {
+            taken = false;
+            for(Shard shard : shards) {
+                if(shard.index == index) {
+                    taken = true;
+                    index++;
+                    break;
+                }
+            }
+        }
+        return index;
+    }
+
+    public static void main(String[] args) {
+        try {
+            int port = Network.DIRECTORY_PORT;
+            if(args.length > 0)
+                port = Integer.parseInt(args[0]);
+
+            new Directory(port);
+            Log.info("[DIRECTORY]: Listening on port " + port);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
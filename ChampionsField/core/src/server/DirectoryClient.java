@@ -0,0 +1,84 @@
+package server;
+
+import com.esotericsoftware.kryonet.Client;
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.Listener;
+import com.esotericsoftware.minlog.Log;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class DirectoryClient {
+    static final int TIME_OUT = 1000;
+
+    /**
+     * Asks the directory on a host which server to join a room on
+     * Without a directory the host is taken to be the server itself, on the default ports
+     * @param host the directory's address
+     * @param room the room to join, or MPClient.ANY_ROOM
+     * @return the server to connect to, or null if the directory has no server to offer
+     */
+    public static Network.ShardAssigned find(String host, int room) {
+        try {
+            return lookup(host, room);
+        } catch (IOException e) {
+            Log.info("[DIRECTORY]: No directory at " + host + ", connecting to it directly");
+            return direct(host, room);
+        }
+    }
+
+    /**
+     * Returns a server on its default ports, for clients that don't go through a directory
+     * @param host the server's address
+     * @param room the room to join
+     * @return the server to return
+     */
+    public static Network.ShardAssigned direct(String host, int room) {
+        Network.ShardAssigned server = new Network.ShardAssigned();
+        server.room = room;
+        server.host = host;
+        server.tcpPort = Network.PORT;
+        server.udpPort = Network.UDP_PORT;
+        return server;
+    }
+
+    /**
+     * Asks the directory on a host which server to join a room on
+     * @param host the directory's address
+     * @param room the room to join, or MPClient.ANY_ROOM
+     * @return the server to connect to, or null if the directory has no server to offer
+     * @throws IOException if the directory can't be reached or doesn't answer in time
+     */
+    public static Network.ShardAssigned lookup(String host, int room) throws IOException {
+        final BlockingQueue<Object> answers = new ArrayBlockingQueue<Object>(1);
+        Client client = new Client();
+        Network.registerPackets(client);
+        client.addListener(new Listener() {
+            @Override
+            public void received(Connection connection, Object object) {
+                if(object instanceof Network.ShardAssigned || object instanceof Network.MatchFull)
+                    answers.offer(object);
+            }
+        });
+
+        try {
+            client.start();
+            client.connect(TIME_OUT, host, Network.DIRECTORY_PORT);
+
+            Network.ShardLookup lookup = new Network.ShardLookup();
+            lookup.room = room;
+            client.sendTCP(lookup);
+
+            Object answer = answers.poll(TIME_OUT, TimeUnit.MILLISECONDS);
+            if(answer == null)
+                throw new IOException("The directory didn't answer");
+            return answer instanceof Network.ShardAssigned ? (Network.ShardAssigned) answer : null;
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while waiting for the directory");
+        } finally {
+            client.stop();
+        }
+    }
+}
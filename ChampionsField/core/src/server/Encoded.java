@@ -0,0 +1,27 @@
+package server;
+
+import java.nio.ByteBuffer;
+
+public class Encoded {
+    String type;
+    ByteBuffer data;
+
+    /**
+     * Constructor for a packet that was already serialized
+     * It can be sent to many connections, each send copies the same bytes instead of serializing the packet again
+     * @param type the packet's type, for the metrics
+     * @param data the packet's bytes, read only so every send can share them
+     */
+    public Encoded(String type, ByteBuffer data) {
+        this.type = type;
+        this.data = data;
+    }
+
+    /**
+     * Returns the size of the serialized packet
+     * @return size in bytes
+     */
+    public int size() {
+        return data.remaining();
+    }
+}
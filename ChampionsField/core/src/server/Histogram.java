@@ -0,0 +1,70 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class Histogram {
+    //Bucket i counts the values below 2^i, the last one takes everything bigger
+    static final int BUCKETS = 40;
+
+    AtomicLongArray buckets;
+    AtomicLong count;
+    AtomicLong sum;
+    AtomicLong max;
+
+    public Histogram() {
+        buckets = new AtomicLongArray(BUCKETS);
+        count = new AtomicLong();
+        sum = new AtomicLong();
+        max = new AtomicLong();
+    }
+
+    /**
+     * Adds a value, it can be called from any thread
+     * @param value the value to add, negative values count as 0
+     */
+    public void record(long value) {
+        if(value < 0)
+            value = 0;
+
+        buckets.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(value), BUCKETS - 1));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long current = max.get();
+        while(value > current && !max.compareAndSet(current, value))
+            current = max.get();
+    }
+
+    /**
+     * Returns an upper bound of a quantile, precise to a power of two
+     * @param quantile the quantile, between 0 and 1
+     * @return value to return
+     */
+    public long quantile(double quantile) {
+        long total = count.get();
+        if(total == 0)
+            return 0;
+
+        long target = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if(seen >= target)
+                return Math.min(1L << i, max.get());
+        }
+        return max.get();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+}
@@ -0,0 +1,74 @@
+package server;
+
+import com.esotericsoftware.kryonet.Client;
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.Listener;
+
+import java.io.IOException;
+
+/**
+ * Client transport backed by a KryoNet client, packets are handed to the listener on a thread of its own
+ */
+public class KryoClientTransport implements ClientTransport {
+    Client client;
+
+    public KryoClientTransport() {
+        client = new Client();
+        client.start();
+        Network.registerPackets(client);
+    }
+
+    @Override
+    public void setListener(final TransportListener listener) {
+        client.addListener(new Listener.ThreadedListener(new Listener() {
+            @Override
+            public void connected(Connection connection) {
+                listener.connected(KryoClientTransport.this);
+            }
+
+            @Override
+            public void disconnected(Connection connection) {
+                listener.disconnected(KryoClientTransport.this);
+            }
+
+            @Override
+            public void received(Connection connection, Object object) {
+                listener.received(KryoClientTransport.this, object);
+            }
+        }));
+    }
+
+    @Override
+    public void connect(int timeout, String host, int tcpPort, int udpPort) throws IOException {
+        client.connect(timeout, host, tcpPort, udpPort);
+    }
+
+    @Override
+    public int getID() {
+        return client.getID();
+    }
+
+    @Override
+    public int sendReliable(Object object) {
+        return client.sendTCP(object);
+    }
+
+    @Override
+    public int sendUnreliable(Object object) {
+        if(client.getRemoteAddressUDP() != null)
+            return client.sendUDP(object);
+        else
+            return client.sendTCP(object);
+    }
+
+    @Override
+    public int getPendingBytes() {
+        return client.getTcpWriteBufferSize();
+    }
+
+    @Override
+    public void close() {
+        client.stop();
+        client.close();
+    }
+}
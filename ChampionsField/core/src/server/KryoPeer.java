@@ -0,0 +1,27 @@
+package server;
+
+import com.esotericsoftware.kryonet.Connection;
+
+/**
+ * A KryoNet connection seen as a peer, created by the KryoNet server for each client
+ */
+public class KryoPeer extends Connection implements Peer {
+
+    @Override
+    public int sendReliable(Object object) {
+        return sendTCP(object);
+    }
+
+    @Override
+    public int sendUnreliable(Object object) {
+        if(getRemoteAddressUDP() != null)
+            return sendUDP(object);
+        else
+            return sendTCP(object);
+    }
+
+    @Override
+    public int getPendingBytes() {
+        return getTcpWriteBufferSize();
+    }
+}
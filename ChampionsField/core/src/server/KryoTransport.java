@@ -0,0 +1,83 @@
+package server;
+
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.Listener;
+import com.esotericsoftware.kryonet.Server;
+
+import java.io.IOException;
+
+/**
+ * Transport backed by a KryoNet server, every socket is served by its single update thread
+ * KryoNet writes every packet with one serialization, so the rooms encode their broadcasts with their own threads' ones
+ */
+public class KryoTransport implements Transport {
+    Server server;
+    ServerSerialization serialization;
+    ThreadLocal<ServerSerialization> encoders;
+
+    /**
+     * Constructor for the transport
+     * @param metrics where the packets are counted
+     * @param rooms the rooms the peers joined
+     */
+    public KryoTransport(final Metrics metrics, final RoomRegistry rooms) {
+        serialization = new ServerSerialization(metrics, rooms);
+        encoders = new ThreadLocal<ServerSerialization>() {
+            @Override
+            protected ServerSerialization initialValue() {
+                return new ServerSerialization(metrics, rooms);
+            }
+        };
+        server = new Server(MPServer.WRITE_BUFFER_SIZE, MPServer.OBJECT_BUFFER_SIZE, serialization) {
+            @Override
+            protected Connection newConnection() {
+                return new KryoPeer();
+            }
+        };
+    }
+
+    @Override
+    public void setListener(final TransportListener listener) {
+        server.addListener(new Listener() {
+            @Override
+            public void connected(Connection connection) {
+                listener.connected((Peer) connection);
+            }
+
+            @Override
+            public void disconnected(Connection connection) {
+                listener.disconnected((Peer) connection);
+            }
+
+            @Override
+            public void received(Connection connection, Object object) {
+                listener.received((Peer) connection, object);
+            }
+        });
+    }
+
+    @Override
+    public void bind(int tcpPort, int udpPort) throws IOException {
+        server.bind(tcpPort, udpPort);
+    }
+
+    @Override
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void stop() {
+        server.stop();
+    }
+
+    @Override
+    public Encoded encode(Object object) {
+        return encoders.get().encode(object);
+    }
+
+    @Override
+    public int getPeerCount() {
+        return server.getConnections().length;
+    }
+}
@@ -0,0 +1,120 @@
+package server;
+
+import com.esotericsoftware.kryonet.KryoSerialization;
+import com.esotericsoftware.minlog.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client transport to a loopback server in the same JVM, the host is ignored and the server is found by its port
+ * Packets are handed to the listener on a thread of its own, like KryoNet's threaded listener does
+ */
+public class LoopbackClientTransport implements ClientTransport {
+    //Shared by every client, each thread serializes with its own Kryo
+    static final ThreadLocal<KryoSerialization> serializations = new ThreadLocal<KryoSerialization>() {
+        @Override
+        protected KryoSerialization initialValue() {
+            KryoSerialization serialization = new KryoSerialization();
+            Network.registerPackets(serialization.getKryo());
+            return serialization;
+        }
+    };
+
+    LoopbackInbox inbox;
+    TransportListener listener;
+    LoopbackPeer peer;
+    AtomicInteger pendingBytes;
+
+    public LoopbackClientTransport() {
+        inbox = new LoopbackInbox(true) {
+            @Override
+            protected Object decode(Peer from, byte[] data) {
+                return serializations.get().read(null, ByteBuffer.wrap(data));
+            }
+        };
+        pendingBytes = new AtomicInteger();
+    }
+
+    @Override
+    public void setListener(TransportListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void connect(int timeout, String host, int tcpPort, int udpPort) throws IOException {
+        LoopbackTransport server = LoopbackTransport.getServer(tcpPort);
+        if(server == null)
+            throw new IOException("No loopback server is bound to port " + tcpPort);
+
+        inbox.start(listener, "Loopback client");
+        peer = server.accept(this);
+        inbox.event(this, LoopbackInbox.CONNECTED);
+    }
+
+    @Override
+    public int getID() {
+        return peer == null ? -1 : peer.getID();
+    }
+
+    @Override
+    public int sendReliable(Object object) {
+        return send(object, true);
+    }
+
+    @Override
+    public int sendUnreliable(Object object) {
+        return send(object, false);
+    }
+
+    /**
+     * Sends a packet to the server
+     * @param object the packet
+     * @param reliable true if the connection must be closed rather than lose the packet
+     * @return number of bytes charged, 0 if the packet was dropped
+     */
+    private int send(Object object, boolean reliable) {
+        if(peer == null || peer.isClosed())
+            return 0;
+
+        KryoSerialization serialization = serializations.get();
+        Object packet = null;
+        byte[] data = null;
+        int size;
+        if(peer.transport.serialize) {
+            ByteBuffer buffer = LoopbackTransport.buffers.get();
+            buffer.clear();
+            serialization.write(null, buffer, object);
+            data = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(data);
+            size = data.length;
+        } else {
+            packet = serialization.getKryo().copy(object);
+            size = LoopbackTransport.COPIED_PACKET_SIZE;
+        }
+
+        if(!peer.transport.inbox.offer(peer, packet, data, size, pendingBytes)) {
+            if(reliable) {
+                Log.warn("[LOOPBACK]: Queue of client " + peer.getID() + " overflowed");
+                close();
+            }
+            return 0;
+        }
+        return size;
+    }
+
+    @Override
+    public int getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    @Override
+    public void close() {
+        if(peer != null)
+            peer.close();
+        else
+            inbox.stop();
+    }
+}
@@ -0,0 +1,137 @@
+package server;
+
+import com.esotericsoftware.minlog.Log;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Packets on their way to one end of loopback connections, handed to its listener on a thread of its own
+ * The queue is bounded per sender, each one may have at most as many bytes waiting as a socket's write buffer
+ */
+public abstract class LoopbackInbox implements Runnable {
+    static final int CONNECTED = 0;
+    static final int RECEIVED = 1;
+    static final int DISCONNECTED = 2;
+
+    static class Delivery {
+        int event;
+        Peer from;
+        Object packet;
+        byte[] data;
+        int size;
+        AtomicInteger pending;
+    }
+
+    LinkedBlockingQueue<Delivery> queue;
+    TransportListener listener;
+    Thread thread;
+    boolean singlePeer;
+
+    /**
+     * Constructor for an inbox
+     * @param singlePeer true if the inbox only ever has one peer, its thread then stops once the peer disconnects
+     */
+    public LoopbackInbox(boolean singlePeer) {
+        this.singlePeer = singlePeer;
+        queue = new LinkedBlockingQueue<Delivery>();
+    }
+
+    /**
+     * Starts handing the queued packets to a listener
+     * @param listener the listener
+     * @param name the thread's name
+     */
+    public void start(TransportListener listener, String name) {
+        this.listener = listener;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a packet, charging its size to the sender
+     * @param from the sending peer, as the receiver sees it
+     * @param packet the packet, or null if it was serialized
+     * @param data the serialized packet, or null if it was copied
+     * @param size the bytes charged to the sender
+     * @param pending the sender's bytes still waiting to be delivered
+     * @return false if the sender already has too many bytes waiting, the packet is then not queued
+     */
+    public boolean offer(Peer from, Object packet, byte[] data, int size, AtomicInteger pending) {
+        if(pending.addAndGet(size) > MPServer.WRITE_BUFFER_SIZE) {
+            pending.addAndGet(-size);
+            return false;
+        }
+
+        Delivery delivery = new Delivery();
+        delivery.event = RECEIVED;
+        delivery.from = from;
+        delivery.packet = packet;
+        delivery.data = data;
+        delivery.size = size;
+        delivery.pending = pending;
+        queue.add(delivery);
+        return true;
+    }
+
+    /**
+     * Queues a connection or disconnection, after every packet the peer sent before
+     * @param from the peer
+     * @param event CONNECTED or DISCONNECTED
+     */
+    public void event(Peer from, int event) {
+        Delivery delivery = new Delivery();
+        delivery.event = event;
+        delivery.from = from;
+        queue.add(delivery);
+    }
+
+    /**
+     * Rebuilds a serialized packet, on the inbox's thread
+     * @param from the sending peer
+     * @param data the serialized packet
+     * @return the packet
+     */
+    protected abstract Object decode(Peer from, byte[] data);
+
+    @Override
+    public void run() {
+        while(true) {
+            Delivery delivery;
+            try {
+                delivery = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                switch (delivery.event) {
+                    case CONNECTED:
+                        listener.connected(delivery.from);
+                        break;
+                    case DISCONNECTED:
+                        listener.disconnected(delivery.from);
+                        if(singlePeer)
+                            return;
+                        break;
+                    case RECEIVED:
+                        delivery.pending.addAndGet(-delivery.size);
+                        Object packet = delivery.packet != null ? delivery.packet : decode(delivery.from, delivery.data);
+                        listener.received(delivery.from, packet);
+                        break;
+                }
+            } catch (RuntimeException e) {
+                Log.error("[LOOPBACK]: Unable to deliver to " + delivery.from.getID(), e);
+            }
+        }
+    }
+
+    /**
+     * Stops the inbox's thread, the packets still queued are dropped
+     */
+    public void stop() {
+        if(thread != null)
+            thread.interrupt();
+    }
+}
@@ -0,0 +1,70 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A loopback client as the server sees it, both ends share its closed state
+ */
+public class LoopbackPeer implements Peer {
+    int id;
+    LoopbackTransport transport;
+    LoopbackClientTransport client;
+    AtomicInteger pendingBytes;
+    AtomicBoolean closed;
+
+    /**
+     * Constructor for a peer of the loopback transport
+     * @param id the peer's id
+     * @param transport the server's transport
+     * @param client the client's end of the connection
+     */
+    public LoopbackPeer(int id, LoopbackTransport transport, LoopbackClientTransport client) {
+        this.id = id;
+        this.transport = transport;
+        this.client = client;
+        pendingBytes = new AtomicInteger();
+        closed = new AtomicBoolean(false);
+    }
+
+    @Override
+    public int getID() {
+        return id;
+    }
+
+    @Override
+    public int sendReliable(Object object) {
+        if(closed.get())
+            return 0;
+        return transport.send(this, object, true);
+    }
+
+    @Override
+    public int sendUnreliable(Object object) {
+        if(closed.get())
+            return 0;
+        return transport.send(this, object, false);
+    }
+
+    @Override
+    public int getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * Closes the connection, both ends are told after the packets already queued to them
+     */
+    @Override
+    public void close() {
+        if(!closed.compareAndSet(false, true))
+            return;
+
+        transport.removePeer(this);
+        transport.inbox.event(this, LoopbackInbox.DISCONNECTED);
+        client.inbox.event(client, LoopbackInbox.DISCONNECTED);
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+}
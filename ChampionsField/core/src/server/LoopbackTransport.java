@@ -0,0 +1,163 @@
+package server;
+
+import com.esotericsoftware.minlog.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transport between a server and clients in the same JVM, found by port instead of by address
+ * Packets go through bounded in-memory queues, serialized like on the wire or, without serialization, only copied
+ * Unreliable packets are dropped instead of queued when their sender has too many bytes waiting
+ */
+public class LoopbackTransport implements Transport {
+    //A packet that is only copied is charged this many bytes, so the outboxes still see a queue building up
+    static final int COPIED_PACKET_SIZE = 64;
+
+    static final ConcurrentHashMap<Integer, LoopbackTransport> servers = new ConcurrentHashMap<Integer, LoopbackTransport>();
+    static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(MPServer.OBJECT_BUFFER_SIZE);
+        }
+    };
+
+    Metrics metrics;
+    RoomRegistry rooms;
+    boolean serialize;
+    ThreadLocal<ServerSerialization> serializations;
+    LoopbackInbox inbox;
+    ConcurrentHashMap<Integer, LoopbackPeer> peers;
+    AtomicInteger nextId;
+    int port;
+
+    /**
+     * Constructor for the transport
+     * @param metrics where the packets are counted, only the serialized ones are
+     * @param rooms the rooms the peers joined
+     * @param serialize true to serialize every packet like on the wire, false to only copy them
+     */
+    public LoopbackTransport(final Metrics metrics, final RoomRegistry rooms, boolean serialize) {
+        this.metrics = metrics;
+        this.rooms = rooms;
+        this.serialize = serialize;
+        serializations = new ThreadLocal<ServerSerialization>() {
+            @Override
+            protected ServerSerialization initialValue() {
+                return new ServerSerialization(metrics, rooms);
+            }
+        };
+        inbox = new LoopbackInbox(false) {
+            @Override
+            protected Object decode(Peer from, byte[] data) {
+                return serializations.get().read(from.getID(), ByteBuffer.wrap(data));
+            }
+        };
+        peers = new ConcurrentHashMap<Integer, LoopbackPeer>();
+        nextId = new AtomicInteger();
+    }
+
+    @Override
+    public void setListener(TransportListener listener) {
+        inbox.listener = listener;
+    }
+
+    /**
+     * Makes the transport reachable by the loopback clients, the UDP port is unused
+     */
+    @Override
+    public void bind(int tcpPort, int udpPort) throws IOException {
+        if(servers.putIfAbsent(tcpPort, this) != null)
+            throw new IOException("A loopback server is already bound to port " + tcpPort);
+        port = tcpPort;
+    }
+
+    @Override
+    public void start() {
+        inbox.start(inbox.listener, "Loopback server");
+    }
+
+    @Override
+    public void stop() {
+        servers.remove(port, this);
+        for(LoopbackPeer peer : peers.values())
+            peer.close();
+        inbox.stop();
+    }
+
+    /**
+     * Returns the server bound to a port
+     * @param port the server's port
+     * @return the server, or null if there's none
+     */
+    static LoopbackTransport getServer(int port) {
+        return servers.get(port);
+    }
+
+    /**
+     * Accepts a client's connection
+     * @param client the connecting client
+     * @return the client as the server sees it
+     */
+    LoopbackPeer accept(LoopbackClientTransport client) {
+        LoopbackPeer peer = new LoopbackPeer(nextId.incrementAndGet(), this, client);
+        peers.put(peer.getID(), peer);
+        inbox.event(peer, LoopbackInbox.CONNECTED);
+        return peer;
+    }
+
+    /**
+     * Sends a packet to a client
+     * @param peer the receiving client
+     * @param object the packet
+     * @param reliable true if the connection must be closed rather than lose the packet
+     * @return number of bytes charged, 0 if the packet was dropped
+     */
+    int send(LoopbackPeer peer, Object object, boolean reliable) {
+        ServerSerialization serialization = serializations.get();
+        Object packet = null;
+        byte[] data = null;
+        int size;
+        if(serialize || object instanceof Encoded) {
+            ByteBuffer buffer = buffers.get();
+            buffer.clear();
+            serialization.write(peer.getID(), buffer, object);
+            data = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(data);
+            size = data.length;
+        } else {
+            packet = serialization.getKryo().copy(object);
+            size = COPIED_PACKET_SIZE;
+        }
+
+        if(!peer.client.inbox.offer(peer.client, packet, data, size, peer.pendingBytes)) {
+            if(reliable) {
+                Log.warn("[LOOPBACK]: Queue of peer " + peer.getID() + " overflowed");
+                peer.close();
+            }
+            return 0;
+        }
+        return size;
+    }
+
+    /**
+     * Forgets a closed peer
+     * @param peer the peer
+     */
+    void removePeer(LoopbackPeer peer) {
+        peers.remove(peer.getID());
+    }
+
+    @Override
+    public Encoded encode(Object object) {
+        return serializations.get().encode(object);
+    }
+
+    @Override
+    public int getPeerCount() {
+        return peers.size();
+    }
+}
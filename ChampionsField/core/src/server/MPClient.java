@@ -1,47 +1,110 @@
 package server;
 
-import com.esotericsoftware.kryonet.Client;
-import com.esotericsoftware.kryonet.Connection;
-import com.esotericsoftware.kryonet.Listener;
 import com.esotericsoftware.minlog.Log;
 
 import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
 
 import logic.*;
 import utils.Constants;
 
 public class MPClient {
     static final int TIME_OUT = 5000;
-    Client client;
+    static final int INPUT_RESEND_INTERVAL = 100;
+    //Network ticks per second, the joystick is sampled and sent at most once per tick
+    static final int SEND_RATE = 30;
+    static final long SEND_INTERVAL = 1000000000L / SEND_RATE;
+    static final int SNAPSHOT_HISTORY = 64;
+    //Pings are sent often until the clock has a full window of samples, then only to follow its drift
+    static final long FAST_PING_INTERVAL = 100000;
+    static final long PING_INTERVAL = 1000000;
+    public static final int ANY_ROOM = -1;
+    ClientTransport client;
     MultiPlayMatch match;
+    SequenceFilter snapshotSequence;
+    SnapshotHistory snapshots;
+    volatile int ackSnapshot;
+    boolean keyframeRequested;
+
+    //The room and team the server placed the player in
+    volatile int room;
+    volatile int team;
+    volatile boolean lockstep;
+
+    //The server's clock, and the start of the match in it once the server sends it
+    ClockSync clock;
+    volatile long serverStart;
+    volatile boolean started;
 
     public MPClient(String name, int team, MultiPlayMatch match, int room) {
-        this.match = match;
-        client = new Client();
-        client.start();
+        this(name, team, match, room, new KryoClientTransport(), DirectoryClient.find(Network.IPV4_FEUP, room));
+    }
+
+    /**
+     * Constructor for the client, plays the match until it ends
+     * @param name player's name
+     * @param team player's team, only a preference when any room is joined
+     * @param match the client's match
+     * @param room the room to join, or ANY_ROOM to be placed by the server's matchmaking
+     * @param client the transport to the server, such as a loopback one to a server in the same JVM
+     * @param host the server's address
+     */
+    public MPClient(String name, int team, MultiPlayMatch match, int room, ClientTransport client, String host) {
+        this(name, team, match, room, client, DirectoryClient.direct(host, room));
+    }
 
-        Network.registerPackets(client);
+    /**
+     * Constructor for the client, plays the match until it ends
+     * @param name player's name
+     * @param team player's team, only a preference when any room is joined
+     * @param match the client's match
+     * @param room the room to join, or ANY_ROOM to be placed by the server's matchmaking
+     * @param client the transport to the server
+     * @param server the server to connect to, as given by the directory, or null if there's none to take the player
+     */
+    public MPClient(String name, int team, MultiPlayMatch match, int room, ClientTransport client, Network.ShardAssigned server) {
+        this.match = match;
+        snapshotSequence = new SequenceFilter();
+        snapshots = new SnapshotHistory(SNAPSHOT_HISTORY);
+        ackSnapshot = 0;
+        keyframeRequested = false;
+        clock = new ClockSync();
+        started = false;
+        this.room = room;
+        this.team = team;
+        this.client = client;
         addListeners();
 
+        if(server == null) {
+            match.matchFull();
+            return;
+        }
+
         try {
-            client.connect(TIME_OUT, Network.IPV4_FEUP, Network.PORT);
+            client.connect(TIME_OUT, server.host, server.tcpPort, server.udpPort);
         } catch (IOException e) {
             e.printStackTrace();
-            client.stop();
+            client.close();
         }
 
-        Network.Login login = new Network.Login();
-        login.name = name;
-        login.team = team;
-        login.room = room;
-        client.sendTCP(login);
+        if(room == ANY_ROOM) {
+            Network.JoinRequest joinRequest = new Network.JoinRequest();
+            joinRequest.name = name;
+            joinRequest.team = team;
+            client.sendReliable(joinRequest);
+        } else {
+            Network.Login login = new Network.Login();
+            login.name = name;
+            login.team = team;
+            login.room = room;
+            client.sendReliable(login);
+        }
 
-        PlayerInfo playerInfo = new PlayerInfo();
-        Network.UpdatePlayer updatePlayer = new Network.UpdatePlayer();
-        updatePlayer.name = name;
-        updatePlayer.team = team;
-        updatePlayer.room = room;
-        Network.UpdateBall updateBall = new Network.UpdateBall();
+        Network.PlayerInput playerInput = new Network.PlayerInput();
+        Network.ClockPing clockPing = new Network.ClockPing();
+        long lastInputTime = 0;
+        long lastPingTime = 0;
+        long nextTick = System.nanoTime();
 
         while(true) {
             //Checks if game ended
@@ -49,110 +112,252 @@ public class MPClient {
                  break;
             }
 
-            //If someone scored
-            if (match.canRepositionAfterScore) {
-                match.canRepositionAfterScore = false;
-
-                Network.ResetPositions resetPositions = new Network.ResetPositions();
-                resetPositions.room = room;
-                client.sendTCP(resetPositions);
-
-                playerInfo.x = match.getControlledPlayerInitialPosition().x;
-                playerInfo.y = match.getControlledPlayerInitialPosition().y;
-                updatePlayer.x = playerInfo.x;
-                updatePlayer.y = playerInfo.y;
-                client.sendTCP(updatePlayer);
-            } else {
-                //Updates ball
-                if (match.ballMoved) {
-                    match.ballMoved = false;
-                    updateBall.x = match.getBall().getBody().getTransform().getPosition().x;
-                    updateBall.y = match.getBall().getBody().getTransform().getPosition().y;
-                    updateBall.vx = match.getBall().getBody().getLinearVelocity().x;
-                    updateBall.vy = match.getBall().getBody().getLinearVelocity().y;
-                    updateBall.lastTouch = match.getBall().getLastTouch();
-                    updateBall.room = room;
-                    client.sendTCP(updateBall);
+            //Sends the joystick, the server simulates the match and answers with the positions
+            //Every change since the last tick is coalesced in one packet with the latest value
+            //UDP may lose it, so the last one is repeated until a new one replaces it
+            //It also acknowledges the last snapshot, the server encodes the next ones against it
+            //A lockstep room relays the joystick to every client, over TCP so it needs no repeating
+            long now = System.nanoTime();
+            if (lockstep) {
+                if(match.inputChanged) {
+                    match.inputChanged = false;
+                    Network.LockstepInput lockstepInput = new Network.LockstepInput();
+                    lockstepInput.room = room;
+                    lockstepInput.x = Quantizer.input(match.inputX);
+                    lockstepInput.y = Quantizer.input(match.inputY);
+                    client.sendReliable(lockstepInput);
                 }
+            } else if (match.inputChanged || now - lastInputTime >= INPUT_RESEND_INTERVAL * 1000000L) {
+                match.inputChanged = false;
+                playerInput.x = match.inputX;
+                playerInput.y = match.inputY;
+                playerInput.ackSnapshot = ackSnapshot;
+                playerInput.sequence++;
+                client.sendUnreliable(playerInput);
+                lastInputTime = now;
+            }
 
-                //Updates player
-                if (match.controlledPlayerMoved) {
-                    match.controlledPlayerMoved = false;
-                    playerInfo.x = match.getClientPlayerX(team);
-                    playerInfo.y = match.getClientPlayerY(team);
+            //The server checks the touch against its world as the client saw it
+            if(match.touchClaimed) {
+                match.touchClaimed = false;
+                Network.TouchClaim touchClaim = new Network.TouchClaim();
+                touchClaim.room = room;
+                touchClaim.tick = match.touchTick;
+                touchClaim.x = match.touchX;
+                touchClaim.y = match.touchY;
+                client.sendReliable(touchClaim);
+            }
 
-                    updatePlayer.x = playerInfo.x;
-                    updatePlayer.y = playerInfo.y;
-                    client.sendTCP(updatePlayer);
-                }
+            //Keeps measuring the server's clock, so the match's clock follows it
+            long pingTime = ClockSync.now();
+            if(pingTime - lastPingTime >= (clock.isSynced() ? PING_INTERVAL : FAST_PING_INTERVAL)) {
+                clockPing.clientTime = pingTime;
+                clockPing.roundTrip = clock.getRoundTrip();
+                client.sendUnreliable(clockPing);
+                lastPingTime = pingTime;
             }
+
+            waitNextTick(nextTick += SEND_INTERVAL);
+            //A thread that fell behind skips the missed ticks instead of sending them in a burst
+            if(System.nanoTime() - nextTick > SEND_INTERVAL)
+                nextTick = System.nanoTime();
         }
 
         Network.RemovePlayer removePlayer = new Network.RemovePlayer();
-        removePlayer.team = team;
-        removePlayer.name = name;
-        removePlayer.room = room;
-        client.sendTCP(removePlayer);
+        removePlayer.team = this.team;
+        removePlayer.room = this.room;
+        client.sendReliable(removePlayer);
+    }
+
+    /**
+     * Gives the match its start in the local clock and the delay of its inputs, they move whenever the estimate of the server's clock is refined
+     */
+    private void postMatchStart() {
+        final long start = clock.toLocal(serverStart);
+        final long inputDelay = clock.getRoundTrip() / 2;
+        match.post(new Runnable() {
+            @Override
+            public void run() {
+                match.setMatchStart(start, inputDelay);
+            }
+        });
+    }
+
+    /**
+     * Parks the thread until a tick's time, it uses no CPU in between
+     * @param tick the tick's time, in System.nanoTime's clock
+     */
+    private void waitNextTick(long tick) {
+        long wait;
+        while((wait = tick - System.nanoTime()) > 0)
+            LockSupport.parkNanos(wait);
     }
 
     private void addListeners() {
-        client.addListener(new Listener.ThreadedListener(new Listener() {
+        client.setListener(new TransportListener() {
             @Override
-            public void connected(Connection connection) {
+            public void connected(Peer peer) {
                 Log.info("[MPClient]: You are connected");
             }
 
             @Override
-            public void disconnected(Connection connection) {
+            public void disconnected(Peer peer) {
                 Log.info("[MPClient]: You are trying to disconnect...");
             }
 
             @Override
-            public void received(Connection connection, Object object) {
-                if(object instanceof Network.AddPlayer) {
-                    Network.AddPlayer addPlayer = (Network.AddPlayer) object;
-                    match.addPlayerToMatch(addPlayer.name, addPlayer.team, addPlayer.controlledPlayer, addPlayer.barrierSide);
+            public void received(Peer peer, Object object) {
+                //Arrives before the room's players, the team may differ from the requested one
+                if(object instanceof Network.MatchAssigned) {
+                    final Network.MatchAssigned assigned = (Network.MatchAssigned) object;
+                    room = assigned.room;
+                    team = assigned.team;
+                    lockstep = assigned.lockstep;
+                    match.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            match.setControlledPlayerTeam(assigned.team);
+                            if(assigned.lockstep)
+                                match.setLockstep(assigned.seed);
+                        }
+                    });
                 }
 
-                if(object instanceof Network.UpdatePlayer) {
-                    Network.UpdatePlayer updatePlayer = (Network.UpdatePlayer) object;
-
-                    while(!match.canStepWorld) {
-
-                    }
-                    match.setPlayerPosition(updatePlayer.x, updatePlayer.y, updatePlayer.name, updatePlayer.team);
+                if(object instanceof Network.ClockPong) {
+                    Network.ClockPong clockPong = (Network.ClockPong) object;
+                    clock.addSample(clockPong.clientTime, clockPong.serverTime, ClockSync.now());
+                    if(started)
+                        postMatchStart();
                 }
 
-                if(object instanceof Network.RemovePlayer) {
-                    Network.RemovePlayer removePlayer = (Network.RemovePlayer) object;
-
-                    while(!match.canStepWorld) {
+                if(object instanceof Network.MatchStart) {
+                    serverStart = ((Network.MatchStart) object).startTime;
+                    started = true;
+                    postMatchStart();
+                }
 
-                    }
-                    match.removePlayerFromMatch(removePlayer.name, removePlayer.team);
+                if(object instanceof Network.LockstepFrame) {
+                    Network.LockstepFrame frame = (Network.LockstepFrame) object;
+                    final float[] velocities = new float[frame.inputs.length];
+                    for(int i = 0; i < velocities.length; i++)
+                        velocities[i] = Quantizer.input(frame.inputs[i]);
+
+                    match.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            match.queueFrame(velocities);
+                        }
+                    });
                 }
 
-                if(object instanceof Network.UpdateBall) {
-                    Network.UpdateBall updateBall = (Network.UpdateBall) object;
+                if(object instanceof Network.AddPlayer) {
+                    final Network.AddPlayer addPlayer = (Network.AddPlayer) object;
+                    match.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            match.addPlayerToMatch(addPlayer.id, addPlayer.name, addPlayer.team, addPlayer.controlledPlayer, addPlayer.barrierSide);
+                        }
+                    });
+                }
 
-                    while(!match.canStepWorld) {
+                if(object instanceof Network.SnapshotDelta) {
+                    //Decoded snapshots are never changed afterwards, so the command can keep it
+                    final Network.SnapshotDelta delta = (Network.SnapshotDelta) object;
+                    final Network.WorldSnapshot snapshot = decodeSnapshot(delta);
+                    if(snapshot == null)
+                        return;
+
+                    match.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            match.acknowledgeInput(snapshot.tick);
+                            match.setSnapshotTick(snapshot.tick);
+                            for(Network.EntityState player : snapshot.players)
+                                match.setPlayerPosition(player.x, player.y, player.vx, player.vy, player.id);
+                            match.setBallState(snapshot.ball.x, snapshot.ball.y, snapshot.ball.vx, snapshot.ball.vy, snapshot.ballTick);
+                            match.resimulate();
+                        }
+                    });
+                }
 
-                    }
-                    match.setBallPosition(updateBall.x, updateBall.y, updateBall.vx, updateBall.vy, updateBall.lastTouch);
+                if(object instanceof Network.RemovePlayer) {
+                    final Network.RemovePlayer removePlayer = (Network.RemovePlayer) object;
+                    match.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            match.removePlayerFromMatch(removePlayer.id);
+                        }
+                    });
                 }
 
                 if(object instanceof Network.MatchFull) {
                     match.matchFull();
                 }
 
-                if(object instanceof Network.ResetPositions) {
-                    while(!match.canStepWorld) {
+                if(object instanceof Network.Score) {
+                    final Network.Score score = (Network.Score) object;
+                    match.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            match.goalScored(score.team, score.lastTouch);
+                        }
+                    });
+                }
 
-                    }
-                    match.setBallPosition(0, 0, 0, 0, "");
+                if(object instanceof Network.BallOwner) {
+                    final Network.BallOwner ballOwner = (Network.BallOwner) object;
+                    match.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            match.setBallOwner(ballOwner.id);
+                        }
+                    });
                 }
 
+                if(object instanceof Network.ResetPositions) {
+                    match.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            match.setBallPosition(0, 0, 0, 0);
+                        }
+                    });
+                }
+
+            }
+        });
+    }
+
+    /**
+     * Rebuilds a snapshot from the baseline it was encoded against and acknowledges it
+     * Asks the server for a keyframe if the baseline is no longer kept
+     * @param delta the received snapshot
+     * @return the rebuilt snapshot, or null if it's late or can't be rebuilt
+     */
+    private Network.WorldSnapshot decodeSnapshot(Network.SnapshotDelta delta) {
+        Network.WorldSnapshot baseline = null;
+        if(delta.baseline != 0) {
+            baseline = snapshots.get(delta.baseline);
+            if(baseline == null) {
+                if(!keyframeRequested) {
+                    Network.RequestKeyframe requestKeyframe = new Network.RequestKeyframe();
+                    requestKeyframe.room = delta.room;
+                    client.sendReliable(requestKeyframe);
+                    keyframeRequested = true;
+                }
+                return null;
             }
-        }));
+        } else {
+            keyframeRequested = false;
+        }
+
+        if(!snapshotSequence.accept(delta.sequence))
+            return null;
+
+        Network.WorldSnapshot snapshot = SnapshotCodec.decode(delta.data, baseline);
+        snapshot.sequence = delta.sequence;
+        snapshot.room = delta.room;
+        snapshots.add(snapshot);
+        ackSnapshot = snapshot.sequence;
+        return snapshot;
     }
 }
\ No newline at end of file
@@ -1,145 +1,836 @@
 package server;
 
-import com.esotericsoftware.kryonet.Connection;
-import com.esotericsoftware.kryonet.Listener;
-import com.esotericsoftware.kryonet.Server;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.GdxNativesLoader;
 import com.esotericsoftware.minlog.Log;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import logic.Player;
+import logic.ServerMatch;
 import utils.Constants;
 
 public class MPServer {
-    Server server;
-    ArrayList<MatchInfo> matches;
+    static final int TICK_RATE = 60;
+    //Clients draw the other players between snapshots, so 20 per second still moves smoothly
+    static final int DEFAULT_SNAPSHOT_RATE = 20;
+    static final int REAP_INTERVAL = 5000;
+    static final int HOT_ROOM_QUEUE_DEPTH = 32;
+    static final int KEYFRAME_INTERVAL = 2;
+    static final int WRITE_BUFFER_SIZE = 16384;
+    static final int OBJECT_BUFFER_SIZE = 2048;
+    static final int METRICS_PORT = 54999;
+    Transport transport;
+    RoomRegistry rooms;
+    Matchmaker matchmaker;
+    ExecutorService workers;
+    ScheduledExecutorService ticker;
+    Metrics metrics;
+    ShardAgent shardAgent;
+    int snapshotRate;
+    int tcpPort;
+    int udpPort;
+
+    /**
+     * Constructor for the server, on KryoNet's transport
+     * @param snapshotRate number of world snapshots sent to each client per second, must divide the tick rate
+     * @throws IOException if the port can't be bound
+     */
+    public MPServer(int snapshotRate) throws IOException {
+        this(snapshotRate, "kryo");
+    }
+
+    /**
+     * Constructor for the server
+     * @param snapshotRate number of world snapshots sent to each client per second, must divide the tick rate
+     * @param transportName the network backend, "kryo", "nio", "loopback" or "loopback-copy"
+     * @throws IOException if the port can't be bound
+     */
+    public MPServer(int snapshotRate, String transportName) throws IOException {
+        this(snapshotRate, transportName, Network.PORT, Network.UDP_PORT);
+    }
+
+    /**
+     * Constructor for the server, on its own ports so several servers can run on one machine
+     * @param snapshotRate number of world snapshots sent to each client per second, must divide the tick rate
+     * @param transportName the network backend, "kryo", "nio", "loopback" or "loopback-copy"
+     * @param tcpPort the reliable channel's port
+     * @param udpPort the unreliable channel's port
+     * @throws IOException if a port can't be bound
+     */
+    public MPServer(int snapshotRate, String transportName, int tcpPort, int udpPort) throws IOException {
+        if(snapshotRate <= 0 || snapshotRate > TICK_RATE || TICK_RATE % snapshotRate != 0)
+            throw new IllegalArgumentException("The snapshot rate must divide " + TICK_RATE);
 
-    public MPServer() throws IOException {
-        matches = new ArrayList<MatchInfo>();
-        for(int i = 0; i < Constants.NUMBER_MATCHES_HOST_BY_SERVER; i++)
-            matches.add(new MatchInfo());
-        server = new Server();
+        this.snapshotRate = snapshotRate;
+        this.tcpPort = tcpPort;
+        this.udpPort = udpPort;
+        workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        metrics = new Metrics();
+        rooms = new RoomRegistry(workers, metrics);
+        matchmaker = new Matchmaker(rooms);
+        transport = createTransport(transportName);
 
-        Network.registerPackets(server);
         addListeners();
-        server.bind(Network.PORT);
-        server.start();
+        addGauges();
+        transport.bind(tcpPort, udpPort);
+        transport.start();
+        Log.info("[SERVER]: Listening on the " + transportName + " transport");
+
+        ticker = Executors.newSingleThreadScheduledExecutor();
+        ticker.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }, 0, 1000000 / TICK_RATE, TimeUnit.MICROSECONDS);
+
+        ticker.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                rooms.reap(System.currentTimeMillis());
+                logHotRooms();
+            }
+        }, REAP_INTERVAL, REAP_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates the network backend, every backend is interchangeable for the rooms
+     * The loopback ones only take clients in the same JVM, "loopback-copy" copies packets instead of serializing them
+     * @param name the backend's name, "kryo", "nio", "loopback" or "loopback-copy"
+     * @return the transport to return
+     * @throws IOException if the transport can't open its selectors
+     */
+    private Transport createTransport(String name) throws IOException {
+        if(name.equals("kryo"))
+            return new KryoTransport(metrics, rooms);
+        if(name.equals("nio"))
+            return new NioTransport(metrics, rooms, Runtime.getRuntime().availableProcessors());
+        if(name.equals("loopback"))
+            return new LoopbackTransport(metrics, rooms, true);
+        if(name.equals("loopback-copy"))
+            return new LoopbackTransport(metrics, rooms, false);
+        throw new IllegalArgumentException("Unknown transport " + name);
+    }
+
+    /**
+     * Registers the values that are read when the metrics are reported
+     */
+    private void addGauges() {
+        metrics.gauge("active_rooms", new Metrics.Gauge() {
+            @Override
+            public long value() {
+                return rooms.size();
+            }
+        });
+        metrics.gauge("matchmaking_open_rooms", new Metrics.Gauge() {
+            @Override
+            public long value() {
+                return matchmaker.getOpenRooms();
+            }
+        });
+        metrics.gauge("connections", new Metrics.Gauge() {
+            @Override
+            public long value() {
+                return transport.getPeerCount();
+            }
+        });
+        metrics.gauge("queue_depth_total", new Metrics.Gauge() {
+            @Override
+            public long value() {
+                long total = 0;
+                for(int depth : getQueueDepths().values())
+                    total += depth;
+                return total;
+            }
+        });
+        metrics.gauge("queue_depth_max", new Metrics.Gauge() {
+            @Override
+            public long value() {
+                long max = 0;
+                for(int depth : getQueueDepths().values())
+                    max = Math.max(max, depth);
+                return max;
+            }
+        });
+    }
+
+    /**
+     * Returns the server's metrics
+     * @return metrics to return
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Publishes the metrics through JMX and a plain text HTTP endpoint on the local address
+     * @param port the HTTP endpoint's port
+     * @throws IOException if the port can't be bound
+     */
+    public void exportMetrics(int port) throws IOException {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName("ChampionsField:type=Metrics"));
+        } catch (JMException e) {
+            Log.warn("[SERVER]: Couldn't register the metrics MBean", e);
+        }
+        new MetricsEndpoint(metrics, port).start();
+    }
+
+    /**
+     * Sets the lockstep mode for the rooms created from now on, the rooms already hosted keep theirs
+     * Lockstep rooms relay the players' inputs, their clients step the match themselves and the server only keeps the clock
+     * @param lockstep true to relay inputs, false to send snapshots
+     */
+    public void setLockstep(boolean lockstep) {
+        rooms.setLockstep(lockstep);
+    }
+
+    /**
+     * Makes the server a shard of a directory, which sends it players and rooms according to its load
+     * @param directoryHost the directory's address
+     * @param host the address clients reach this server at
+     */
+    public void joinDirectory(String directoryHost, String host) {
+        shardAgent = new ShardAgent(this, directoryHost, Network.DIRECTORY_PORT, host, tcpPort, udpPort);
+    }
+
+    /**
+     * Returns the number of every hosted room
+     * @return numbers to return
+     */
+    public int[] getRoomNumbers() {
+        ArrayList<Integer> numbers = new ArrayList<Integer>();
+        for(MatchInfo match : rooms.getRooms())
+            numbers.add(match.room);
+
+        int[] array = new int[numbers.size()];
+        for(int i = 0; i < array.length; i++)
+            array[i] = numbers.get(i);
+        return array;
+    }
+
+    /**
+     * Queues one step of every running match on its room's executor
+     * A room whose previous step is still queued skips this one instead of piling them up
+     */
+    private void tick() {
+        for(final MatchInfo match : rooms.getRooms()) {
+            if(!match.tickQueued.compareAndSet(false, true))
+                continue;
+
+            match.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    match.tickQueued.set(false);
+                    ServerMatch serverMatch = match.serverMatch;
+                    if(match.closed || !serverMatch.isStarted() || match.isFinished())
+                        return;
+
+                    long start = System.nanoTime();
+                    long flushStart;
+                    if(match.lockstep) {
+                        serverMatch.tickClock();
+                        flushStart = System.nanoTime();
+                        broadcastFrame(match);
+                    } else {
+                        serverMatch.tick();
+                        broadcastState(match, match.room);
+                        flushStart = System.nanoTime();
+                        flushSnapshots(match);
+                    }
+                    long end = System.nanoTime();
+
+                    String labels = Metrics.labels(match.room);
+                    metrics.record("tick_us", labels, (flushStart - start) / 1000);
+                    metrics.record("fanout_us", labels, (end - flushStart) / 1000);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the number of tasks waiting in each room's executor
+     * @return queue depth of each room, by room number
+     */
+    public Map<Integer, Integer> getQueueDepths() {
+        return rooms.getQueueDepths();
+    }
+
+    /**
+     * Logs the rooms that can't keep up with their packets
+     */
+    private void logHotRooms() {
+        for(Map.Entry<Integer, Integer> entry : getQueueDepths().entrySet()) {
+            if(entry.getValue() >= HOT_ROOM_QUEUE_DEPTH)
+                Log.warn("[SERVER]: Room " + entry.getKey() + " has " + entry.getValue() + " queued tasks");
+        }
+    }
+
+    /**
+     * Runs a packet's handler on its room's executor and measures how long the packet waited and ran
+     * @param match the packet's room
+     * @param packet the received packet
+     * @param handler the packet's handler
+     */
+    private void dispatch(MatchInfo match, Object packet, final Runnable handler) {
+        final long received = System.nanoTime();
+        final String labels = Metrics.labels(packet.getClass().getSimpleName());
+        match.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                handler.run();
+                metrics.record("handler_latency_us", labels, (System.nanoTime() - received) / 1000);
+            }
+        });
+    }
+
+    /**
+     * Removes a connection's player from its match and from the other clients' matches
+     * @param c the leaving connection
+     */
+    private void leaveMatch(final Peer c) {
+        final MatchInfo match = rooms.unbind(c);
+        if(match == null)
+            return;
+
+        match.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if(match.closed)
+                    return;
+
+                PlayerInfo playerInfo = match.removePlayer(c);
+                if(playerInfo == null)
+                    return;
+                matchmaker.release(match.room, playerInfo.team, playerInfo.name);
+
+                Network.RemovePlayer removePlayer = new Network.RemovePlayer();
+                removePlayer.id = playerInfo.id;
+                removePlayer.team = playerInfo.team;
+                removePlayer.room = match.room;
+                broadcast(match, removePlayer);
+            }
+        });
+    }
+
+    /**
+     * Queues a login on the executor of the requested room
+     * @param c the player's connection
+     * @param login the login request
+     */
+    private void joinMatch(final Peer c, final Network.Login login) {
+        final MatchInfo match = rooms.getOrCreate(login.room);
+        if(match == null) {
+            c.sendReliable(new Network.MatchFull());
+            return;
+        }
+
+        final long received = System.nanoTime();
+        match.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                //A finished match is replaced by a new one in the same room
+                if(match.closed || match.isFinished()) {
+                    rooms.retire(match);
+                    joinMatch(c, login);
+                    return;
+                }
+
+                login(c, login, match);
+                metrics.record("handler_latency_us", Metrics.labels("Login"), (System.nanoTime() - received) / 1000);
+            }
+        });
+    }
+
+    /**
+     * Places a player in a room chosen by the matchmaker and queues its login on that room's executor
+     * @param c the player's connection
+     * @param request the join request
+     */
+    private void findMatch(final Peer c, final Network.JoinRequest request) {
+        final Network.MatchAssigned assigned = matchmaker.place(request.name, request.team);
+        final MatchInfo match = assigned == null ? null : rooms.getOrCreate(assigned.room);
+        if(match == null) {
+            if(assigned != null)
+                matchmaker.release(assigned.room, assigned.team, request.name);
+            c.sendReliable(new Network.MatchFull());
+            return;
+        }
+
+        final long received = System.nanoTime();
+        match.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Network.Login login = new Network.Login();
+                login.name = request.name;
+                login.team = assigned.team;
+                login.room = assigned.room;
+
+                //An abandoned room may have been closed since, the reserved slot then goes to a new match in the same room
+                if(match.closed) {
+                    matchmaker.release(assigned.room, assigned.team, request.name);
+                    findMatch(c, request);
+                    return;
+                }
+
+                if(!login(c, login, match))
+                    matchmaker.release(assigned.room, assigned.team, request.name);
+                metrics.record("handler_latency_us", Metrics.labels("JoinRequest"), (System.nanoTime() - received) / 1000);
+            }
+        });
+    }
+
+    /**
+     * Adds a player to a match if its team isn't full, must run on the match's executor
+     * @param c the player's connection
+     * @param login the login request
+     * @param match the requested match
+     * @return true if the player joined, false if it was told the match is full
+     */
+    private boolean login(Peer c, Network.Login login, MatchInfo match) {
+        //Checks to see if every team has the right number of players
+        int numPlayerHome = 0;
+        int numPlayersVisitor = 0;
+        boolean sameName = false;
+        for(PlayerInfo playerInfo : match.playersInfo) {
+            if(playerInfo.team == 0)
+                numPlayerHome++;
+            else
+                numPlayersVisitor++;
+
+            if(playerInfo.name.equals(login.name)) {
+                sameName = true;
+                break;
+            }
+        }
+
+        //A lockstep client can't catch up with a simulation that already started without it
+        if(((login.team == 0 && numPlayerHome < Constants.NUMBER_PLAYER_ONLINE && !sameName)
+                || (login.team == 1 && numPlayersVisitor < Constants.NUMBER_PLAYER_ONLINE && !sameName))
+                && !(match.lockstep && match.serverMatch.isStarted())
+                && rooms.bind(c, match)) {
+
+            PlayerInfo playerInfo = new PlayerInfo(login.team, login.name);
+            match.addPlayer(c, playerInfo);
+
+            Network.MatchAssigned assigned = new Network.MatchAssigned();
+            assigned.room = login.room;
+            assigned.team = login.team;
+            assigned.lockstep = match.lockstep;
+            assigned.seed = match.seed;
+            c.sendReliable(assigned);
+
+            //Sends the player's info to the new created match, so that match will have the existing players already
+            for (int i = 0; i < match.numPlayers - 1; i++) {
+                Network.AddPlayer addPlayer = new Network.AddPlayer();
+                addPlayer.id = match.playersInfo.get(i).id;
+                addPlayer.team = match.playersInfo.get(i).team;
+                addPlayer.name = match.playersInfo.get(i).name;
+                addPlayer.controlledPlayer = false;
+                addPlayer.barrierSide = match.serverMatch.getBarrierSide();
+                addPlayer.room = login.room;
+                c.sendReliable(addPlayer);
+            }
+
+            //Adds the new player to the match in all devices
+            Network.AddPlayer addPlayer = new Network.AddPlayer();
+            addPlayer.id = playerInfo.id;
+            addPlayer.name = login.name;
+            addPlayer.team = login.team;
+            addPlayer.controlledPlayer = true;
+            addPlayer.barrierSide = match.serverMatch.getBarrierSide();
+            addPlayer.room = login.room;
+            broadcast(match, addPlayer);
+
+            //The simulation only runs once both teams are complete, and every client times the match from its start
+            if (match.numPlayers == Constants.NUMBER_PLAYER_ONLINE * 2) {
+                match.serverMatch.startTimer();
+                matchmaker.started(match.room);
+                match.startTime = ClockSync.now();
+                broadcast(match, matchStart(match));
+            } else if(match.serverMatch.isStarted()) {
+                c.sendReliable(matchStart(match));
+                c.sendReliable(ballOwner(match));
+            }
+            return true;
+        } else {
+            c.sendReliable(new Network.MatchFull());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the start of a match to send to its clients
+     * @param match the started match
+     * @return packet to return
+     */
+    private Network.MatchStart matchStart(MatchInfo match) {
+        Network.MatchStart matchStart = new Network.MatchStart();
+        matchStart.room = match.room;
+        matchStart.startTime = match.startTime;
+        return matchStart;
+    }
+
+    /**
+     * Returns the owner of a match's ball to send to its clients
+     * @param match the match
+     * @return packet to return
+     */
+    private Network.BallOwner ballOwner(MatchInfo match) {
+        Network.BallOwner ballOwner = new Network.BallOwner();
+        ballOwner.room = match.room;
+        ballOwner.id = match.ballOwner;
+        return ballOwner;
+    }
+
+    /**
+     * Sends the goals, kickoffs and ball hand-offs of a match to all its clients, and queues its periodic snapshot in their outboxes
+     * @param match the match to send
+     * @param room the match's room
+     */
+    private void broadcastState(MatchInfo match, int room) {
+        ServerMatch serverMatch = match.serverMatch;
+
+        if(serverMatch.consumeScored()) {
+            Network.Score score = new Network.Score();
+            score.team = serverMatch.getScoringTeam();
+            score.lastTouch = serverMatch.getLastTouchId();
+            score.room = room;
+            broadcast(match, score);
+        }
+
+        if(serverMatch.consumePositionsReset()) {
+            Network.ResetPositions resetPositions = new Network.ResetPositions();
+            resetPositions.room = room;
+            broadcast(match, resetPositions);
+        }
+
+        //Only a change of owner is sent, the snapshots don't carry the last toucher
+        if(match.updateBallOwner(serverMatch.getLastTouchId(), serverMatch.getTick()))
+            broadcast(match, ballOwner(match));
+
+        //Only every few ticks, so the traffic doesn't depend on the simulation rate
+        if(serverMatch.getTick() % (TICK_RATE / snapshotRate) != 0)
+            return;
+
+        ArrayList<Player> homePlayers = serverMatch.getHomeTeam().getPlayers();
+        ArrayList<Player> visitorPlayers = serverMatch.getVisitorTeam().getPlayers();
+        Network.WorldSnapshot snapshot = new Network.WorldSnapshot();
+        snapshot.tick = serverMatch.getTick();
+        snapshot.players = new Network.EntityState[homePlayers.size() + visitorPlayers.size()];
+        for(int i = 0; i < homePlayers.size(); i++)
+            snapshot.players[i] = entityState(homePlayers.get(i).getBody(), homePlayers.get(i).getId());
+        for(int i = 0; i < visitorPlayers.size(); i++)
+            snapshot.players[homePlayers.size() + i] = entityState(visitorPlayers.get(i).getBody(), visitorPlayers.get(i).getId());
+        snapshot.ball = match.ballState(entityState(serverMatch.getBall().getBody(), -1), snapshot.tick);
+        snapshot.ballTick = match.sentBallTick;
+        snapshot.room = room;
+        snapshot.sequence = ++match.snapshotSequence;
+        match.addSnapshot(snapshot);
+
+        for(PlayerInfo playerInfo : match.playersInfo)
+            playerInfo.outbox.offer(snapshot);
+    }
+
+    /**
+     * Sends the last input of every player of a lockstep match to all its clients, as the frame of this tick
+     * It goes over TCP, every client must step every frame in the same order
+     * @param match the match to send
+     */
+    private void broadcastFrame(MatchInfo match) {
+        Network.LockstepFrame frame = new Network.LockstepFrame();
+        frame.room = match.room;
+        frame.tick = (int) match.serverMatch.getTick();
+        frame.inputs = new byte[match.playersInfo.size() * 2];
+        for(int i = 0; i < match.playersInfo.size(); i++) {
+            PlayerInfo playerInfo = match.playersInfo.get(i);
+            frame.inputs[2 * i] = playerInfo.lockstepX;
+            frame.inputs[2 * i + 1] = playerInfo.lockstepY;
+        }
+        broadcast(match, frame);
+    }
+
+    /**
+     * Sends a packet to every client of a match over TCP, serializing it only once
+     * @param match the match
+     * @param packet the packet to send
+     */
+    private void broadcast(MatchInfo match, Object packet) {
+        if(match.connections.isEmpty())
+            return;
+
+        Encoded encoded = transport.encode(packet);
+        for(Peer connection : match.connections)
+            connection.sendReliable(encoded);
+    }
+
+    /**
+     * Sends the waiting snapshot of every outbox that can take it
+     * Runs every tick, so a snapshot held back by a busy socket goes out as soon as the socket drains
+     * A connection that stays congested at its lowest rate is closed, and one whose reliable packets don't drain
+     * @param match the match to flush
+     */
+    private void flushSnapshots(MatchInfo match) {
+        //Clients that acknowledged the same snapshot share the encoding of the deltas against it
+        HashMap<Long, byte[]> encodings = new HashMap<Long, byte[]>();
+        for(int i = 0; i < match.connections.size(); i++) {
+            Peer connection = match.connections.get(i);
+            PlayerInfo playerInfo = match.playersInfo.get(i);
+            Outbox outbox = playerInfo.outbox;
+            outbox.update(playerInfo.ackedSnapshot);
+
+            //Per connection, so the one backing up can be found, the snapshots' lag and the reliable packets' buffer
+            String labels = Metrics.labels(connection.getID(), match.room);
+            metrics.record("snapshot_ack_lag_ticks", labels, outbox.getAckLag());
+            metrics.record("write_buffer_bytes", labels, connection.getPendingBytes());
+            if(outbox.isStalled()) {
+                Log.warn("[SERVER]: Closing slow connection " + connection.getID() + " in room " + match.room);
+                metrics.increment("slow_connections_closed", "", 1);
+                connection.close();
+                continue;
+            }
+
+            Network.WorldSnapshot snapshot = outbox.poll();
+            if(snapshot == null)
+                continue;
+
+            //A snapshot skipped because nothing changed isn't waiting for an acknowledgement
+            int bytes = sendSnapshot(connection, playerInfo, match, snapshot, encodings);
+            if(bytes > 0)
+                outbox.sent(snapshot.sequence, bytes);
+        }
+    }
+
+    /**
+     * Sends a snapshot to a client, encoded against the last snapshot the client acknowledged
+     * Sends a keyframe instead if the client asked for one, if the interval passed or if the baseline is gone
+     * Sends nothing if the world hasn't changed since the baseline and there's no new input to acknowledge
+     * @param connection the receiving connection
+     * @param playerInfo the receiving player's info
+     * @param match the player's match
+     * @param snapshot the snapshot to send
+     * @param encodings the deltas already encoded in this flush, by snapshot and baseline
+     * @return number of bytes written
+     */
+    private int sendSnapshot(Peer connection, PlayerInfo playerInfo, MatchInfo match, Network.WorldSnapshot snapshot, HashMap<Long, byte[]> encodings) {
+        Network.WorldSnapshot baseline = null;
+        if(!playerInfo.keyframeRequested && snapshot.sequence - playerInfo.lastKeyframe < snapshotRate * KEYFRAME_INTERVAL)
+            baseline = match.snapshots.get(playerInfo.ackedSnapshot);
+
+        if(baseline == null) {
+            playerInfo.keyframeRequested = false;
+            playerInfo.lastKeyframe = snapshot.sequence;
+        } else if(baseline.sequence - match.lastChangedSnapshot >= 0 && playerInfo.sentInputAck == playerInfo.inputSequence.getLastSequence()) {
+            return 0;
+        }
+
+        Network.SnapshotDelta delta = new Network.SnapshotDelta();
+        delta.sequence = snapshot.sequence;
+        delta.baseline = baseline == null ? 0 : baseline.sequence;
+        delta.ackInput = playerInfo.inputSequence.getLastSequence();
+        playerInfo.sentInputAck = delta.ackInput;
+        long key = ((long) snapshot.sequence << 32) | (delta.baseline & 0xFFFFFFFFL);
+        delta.data = encodings.get(key);
+        if(delta.data == null) {
+            delta.data = SnapshotCodec.encode(snapshot, baseline);
+            encodings.put(key, delta.data);
+        }
+        delta.room = snapshot.room;
+        return connection.sendUnreliable(delta);
+    }
+
+    /**
+     * Creates the state of a body for a snapshot
+     * @param body the body to copy
+     * @param id the entity's id
+     * @return the body's state
+     */
+    private Network.EntityState entityState(Body body, int id) {
+        Network.EntityState state = new Network.EntityState();
+        state.id = id;
+        state.x = body.getPosition().x;
+        state.y = body.getPosition().y;
+        state.vx = body.getLinearVelocity().x;
+        state.vy = body.getLinearVelocity().y;
+        return state;
     }
 
     private void addListeners() {
-        server.addListener(new Listener() {
+        transport.setListener(new TransportListener() {
             @Override
-            public void connected(Connection connection) {
+            public void connected(Peer connection) {
                 Log.info("[SERVER]: Someone is trying to connect...");
             }
 
             @Override
-            public void disconnected(Connection connection) {
+            public void disconnected(Peer connection) {
                 Log.info("[SERVER]: Someone is trying to disconnect...");
+                leaveMatch(connection);
             }
 
+            /**
+             * Runs on the network thread, so it only routes each packet to its room's executor
+             */
             @Override
-            public void received(Connection c, Object object) {
+            public void received(final Peer c, Object object) {
                 if (object instanceof Network.Login) {
-                    Network.Login login = (Network.Login) object;
-                    MatchInfo match = matches.get(login.room);
-
-                    //Checks to see if every team has the right number of players
-                    int numPlayerHome = 0;
-                    int numPlayersVisitor = 0;
-                    boolean sameName = false;
-                    for(PlayerInfo playerInfo : match.playersInfo) {
-                        if(playerInfo.team == 0)
-                            numPlayerHome++;
-                        else
-                            numPlayersVisitor++;
-
-                        if(playerInfo.name.equals(login.name)) {
-                            sameName = true;
-                            break;
-                        }
-                    }
-
-                    if((login.team == 0 && numPlayerHome < Constants.NUMBER_PLAYER_ONLINE && !sameName)
-                            || (login.team == 1 && numPlayersVisitor < Constants.NUMBER_PLAYER_ONLINE &&!sameName)) {
-
-                        match.playersInfo.add(new PlayerInfo(login.team, login.name));
-                        match.connections.add(c);
-
-                        //Sends the player's info to the new created match, so that match will have the existing players already
-                        for (int i = 0; i < match.numPlayers; i++) {
-                            Network.AddPlayer addPlayer = new Network.AddPlayer();
-                            addPlayer.team = match.playersInfo.get(i).team;
-                            addPlayer.name = match.playersInfo.get(i).name;
-                            addPlayer.controlledPlayer = false;
-                            addPlayer.barrierSide = match.barrierSide;
-                            addPlayer.room = login.room;
-                            c.sendTCP(addPlayer);
-                        }
+                    joinMatch(c, (Network.Login) object);
+                }
 
-                        match.numPlayers++;
-
-                        //Adds the new player to the match in all devices
-                        Network.AddPlayer addPlayer = new Network.AddPlayer();
-                        addPlayer.name = login.name;
-                        addPlayer.team = login.team;
-                        addPlayer.controlledPlayer = true;
-                        addPlayer.barrierSide = match.barrierSide;
-                        addPlayer.room = login.room;
-                        for(Connection connection : match.connections)
-                            connection.sendTCP(addPlayer);
-                    } else {
-                        c.sendTCP(new Network.MatchFull());
-                    }
+                if(object instanceof Network.JoinRequest) {
+                    findMatch(c, (Network.JoinRequest) object);
                 }
 
-                if(object instanceof Network.UpdatePlayer) {
-                    Network.UpdatePlayer updatePlayer = (Network.UpdatePlayer) object;
-                    MatchInfo match = matches.get(updatePlayer.room);
+                if(object instanceof Network.PlayerInput) {
+                    final Network.PlayerInput playerInput = (Network.PlayerInput) object;
+                    final MatchInfo match = rooms.getMatch(c);
+                    if(match == null)
+                        return;
 
-                    for(Connection connection : match.connections)
-                        connection.sendTCP(updatePlayer);
+                    dispatch(match, object, new Runnable() {
+                        @Override
+                        public void run() {
+                            //Inputs come over UDP, so a late one must not replace a newer one
+                            PlayerInfo playerInfo = match.getPlayerInfo(c);
+                            if(playerInfo == null || !playerInfo.inputSequence.accept(playerInput.sequence))
+                                return;
+
+                            match.serverMatch.setPlayerInput(playerInfo.id, playerInput.x, playerInput.y);
+                            if(playerInput.ackSnapshot != 0)
+                                playerInfo.ackedSnapshot = playerInput.ackSnapshot;
+                        }
+                    });
                 }
 
-                if(object instanceof Network.ResetPositions) {
-                    Network.ResetPositions resetPositions = (Network.ResetPositions) object;
-                    MatchInfo match = matches.get(resetPositions.room);
+                if(object instanceof Network.LockstepInput) {
+                    final Network.LockstepInput lockstepInput = (Network.LockstepInput) object;
+                    final MatchInfo match = rooms.getMatch(c);
+                    if(match == null)
+                        return;
+
+                    dispatch(match, object, new Runnable() {
+                        @Override
+                        public void run() {
+                            PlayerInfo playerInfo = match.getPlayerInfo(c);
+                            if(playerInfo == null)
+                                return;
 
-                    for(Connection connection : match.connections)
-                        connection.sendTCP(resetPositions);
+                            playerInfo.lockstepX = lockstepInput.x;
+                            playerInfo.lockstepY = lockstepInput.y;
+                        }
+                    });
                 }
 
-                if(object instanceof Network.RemovePlayer) {
-                    Network.RemovePlayer removePlayer = (Network.RemovePlayer) object;
-                    MatchInfo match = matches.get(removePlayer.room);
+                //Answered on the network thread, so the room's queue doesn't add to the measured round trip
+                if(object instanceof Network.ClockPing) {
+                    final Network.ClockPing clockPing = (Network.ClockPing) object;
+                    Network.ClockPong clockPong = new Network.ClockPong();
+                    clockPong.clientTime = clockPing.clientTime;
+                    clockPong.serverTime = ClockSync.now();
+                    c.sendUnreliable(clockPong);
 
-                    for(PlayerInfo playerInfo : match.playersInfo) {
-                        if(playerInfo.team == removePlayer.team && playerInfo.name.equals(removePlayer.name)) {
-                            match.playersInfo.remove(playerInfo);
-                            break;
+                    final MatchInfo match = rooms.getMatch(c);
+                    if(match == null || clockPing.roundTrip == 0)
+                        return;
+
+                    metrics.record("round_trip_us", "", clockPing.roundTrip);
+                    dispatch(match, object, new Runnable() {
+                        @Override
+                        public void run() {
+                            PlayerInfo playerInfo = match.getPlayerInfo(c);
+                            if(playerInfo != null)
+                                playerInfo.roundTrip = clockPing.roundTrip;
                         }
-                    }
+                    });
+                }
+
+                if(object instanceof Network.TouchClaim) {
+                    final Network.TouchClaim touchClaim = (Network.TouchClaim) object;
+                    final MatchInfo match = rooms.getMatch(c);
+                    if(match == null)
+                        return;
+
+                    dispatch(match, object, new Runnable() {
+                        @Override
+                        public void run() {
+                            PlayerInfo playerInfo = match.getPlayerInfo(c);
+                            if(playerInfo == null)
+                                return;
 
-                    //Removes the player from the other client's matches
-                    for(Connection connection : match.connections)
-                        connection.sendTCP(removePlayer);
-                    match.numPlayers--;
+                            boolean accepted = match.serverMatch.claimTouch(playerInfo.id, touchClaim.tick, touchClaim.x, touchClaim.y);
+                            metrics.increment(accepted ? "touch_claims_accepted" : "touch_claims_rejected", "", 1);
+                        }
+                    });
                 }
 
-                if(object instanceof Network.UpdateBall) {
-                    Network.UpdateBall updateBall = (Network.UpdateBall) object;
-                    MatchInfo match = matches.get(updateBall.room);
+                if(object instanceof Network.RequestKeyframe) {
+                    final MatchInfo match = rooms.getMatch(c);
+                    if(match == null)
+                        return;
 
-                    for(Connection connection : match.connections)
-                        connection.sendTCP(updateBall);
+                    dispatch(match, object, new Runnable() {
+                        @Override
+                        public void run() {
+                            PlayerInfo playerInfo = match.getPlayerInfo(c);
+                            if(playerInfo != null)
+                                playerInfo.keyframeRequested = true;
+                        }
+                    });
+                }
+
+                if(object instanceof Network.RemovePlayer) {
+                    leaveMatch(c);
                 }
             }
         });
     }
 
+    /**
+     * Usage: MPServer [snapshotRate|lockstep] [metricsPort] [transport] [tcpPort] [udpPort] [directoryHost] [advertisedHost]
+     * Several servers on one machine need their own ports, with a directory host they register as its shards
+     * With lockstep instead of a snapshot rate, the rooms relay the players' inputs instead of sending snapshots
+     */
     public static void main(String[] args) {
         try {
-            new MPServer();
+            //Loads the native physics libraries, there's no Gdx application to do it on the server
+            GdxNativesLoader.load();
+            int snapshotRate = DEFAULT_SNAPSHOT_RATE;
+            boolean lockstep = args.length > 0 && args[0].equals("lockstep");
+            if(args.length > 0 && !lockstep)
+                snapshotRate = Integer.parseInt(args[0]);
+
+            int metricsPort = METRICS_PORT;
+            if(args.length > 1)
+                metricsPort = Integer.parseInt(args[1]);
+
+            String transportName = "kryo";
+            if(args.length > 2)
+                transportName = args[2];
+
+            int tcpPort = Network.PORT;
+            int udpPort = Network.UDP_PORT;
+            if(args.length > 4) {
+                tcpPort = Integer.parseInt(args[3]);
+                udpPort = Integer.parseInt(args[4]);
+            }
+
+            MPServer server = new MPServer(snapshotRate, transportName, tcpPort, udpPort);
+            server.setLockstep(lockstep);
+            server.exportMetrics(metricsPort);
+            if(args.length > 5)
+                server.joinDirectory(args[5], args.length > 6 ? args[6] : Network.LOCAL_IP);
             Log.set(Log.LEVEL_DEBUG);
         } catch (IOException e) {
             e.printStackTrace();
@@ -1,25 +1,222 @@
 package server;
 
-import com.esotericsoftware.kryonet.Connection;
 
 import java.util.ArrayList;
 import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.badlogic.gdx.math.Vector2;
+
+import logic.BallExtrapolator;
+import logic.ServerMatch;
+import utils.Constants;
 
 public class MatchInfo {
+    static final long IDLE_TIMEOUT = 30000;
+    static final int SNAPSHOT_HISTORY = 64;
+    //The ball is sent again once the clients' extrapolation is this far from the server's ball
+    static final float BALL_CORRECTION_DISTANCE = 0.05f;
+    static final float BALL_CORRECTION_SPEED = 0.25f;
+    //A player takes the ball from its owner only after being its last toucher for this many ticks, so a scramble doesn't flip it
+    static final int OWNER_HOLD_TICKS = 15;
+
+    int room;
     int numPlayers;
     boolean barrierSide;
     ArrayList<PlayerInfo> playersInfo;
-    ArrayList<Connection> connections;
+    ArrayList<Peer> connections;
+    ServerMatch serverMatch;
+    long emptySince;
+    boolean closed;
+    int snapshotSequence;
+    int lastEntityId;
+    SnapshotHistory snapshots;
+    int lastChangedSnapshot;
+    //Fixed when the room is created, its clients are set up for one mode by MatchAssigned
+    boolean lockstep;
+    //Every random choice of the room follows from it, lockstep clients get it to make the same ones
+    long seed;
+    BallExtrapolator ballModel;
+    Network.EntityState sentBall;
+    long sentBallTick;
+    //The server's clock when the match started, sent to the clients that join after it
+    long startTime;
+    //The player who owns the ball, and the one about to take it since a tick
+    int ballOwner;
+    int ownerCandidate;
+    long candidateSince;
+
+    //Every field above is only touched by tasks running on the room's executor
+    RoomExecutor executor;
+    AtomicBoolean tickQueued;
 
-    public MatchInfo() {
+    /**
+     * Constructor for a room's match
+     * @param room the room's number
+     * @param workers the pool that runs the room's executor
+     * @param lockstep true if the room relays its players' inputs instead of sending snapshots
+     */
+    public MatchInfo(int room, Executor workers, boolean lockstep) {
+        this.room = room;
+        this.lockstep = lockstep;
+        executor = new RoomExecutor(workers);
+        tickQueued = new AtomicBoolean(false);
         playersInfo = new ArrayList<PlayerInfo>();
-        connections = new ArrayList<Connection>();
+        connections = new ArrayList<Peer>();
         numPlayers = 0;
+        emptySince = System.currentTimeMillis();
+        closed = false;
+        snapshots = new SnapshotHistory(SNAPSHOT_HISTORY);
+        ballOwner = -1;
+        ownerCandidate = -1;
 
-        Random r = new Random();
+        seed = new Random().nextLong();
+        Random r = new Random(seed);
         if(r.nextInt(2) == 0)
             barrierSide = true;
         else
             barrierSide = false;
+
+        serverMatch = new ServerMatch(barrierSide);
+        ballModel = serverMatch.createBallExtrapolator(1);
+    }
+
+    /**
+     * Adds a player and the connection controlling it to the match
+     * The player gets an id that isn't reused in this room, so old snapshots can't mistake another player for it
+     * @param connection the player's connection
+     * @param playerInfo the player's info
+     */
+    public void addPlayer(Peer connection, PlayerInfo playerInfo) {
+        playerInfo.id = ++lastEntityId;
+        playerInfo.outbox = new Outbox(connection);
+        playersInfo.add(playerInfo);
+        connections.add(connection);
+        serverMatch.addPlayer(playerInfo.id, playerInfo.name, playerInfo.team);
+        numPlayers++;
+    }
+
+    /**
+     * Removes the player controlled by a connection from the match
+     * @param connection the player's connection
+     * @return the removed player's info, or null if the connection isn't in the match
+     */
+    public PlayerInfo removePlayer(Peer connection) {
+        int index = connections.indexOf(connection);
+        if(index == -1)
+            return null;
+
+        connections.remove(index);
+        PlayerInfo playerInfo = playersInfo.remove(index);
+        serverMatch.removePlayer(playerInfo.id);
+        numPlayers--;
+
+        if(numPlayers == 0)
+            emptySince = System.currentTimeMillis();
+        return playerInfo;
+    }
+
+    /**
+     * Returns the player controlled by a connection
+     * @param connection the player's connection
+     * @return the player's info, or null if the connection isn't in the match
+     */
+    public PlayerInfo getPlayerInfo(Peer connection) {
+        int index = connections.indexOf(connection);
+        if(index == -1)
+            return null;
+
+        return playersInfo.get(index);
+    }
+
+    /**
+     * Stores a snapshot sent to the clients, so later ones can be encoded against it
+     * @param snapshot the snapshot to store
+     */
+    public void addSnapshot(Network.WorldSnapshot snapshot) {
+        Network.WorldSnapshot previous = snapshots.get(snapshot.sequence - 1);
+        if(previous == null || !SnapshotCodec.sameState(snapshot, previous))
+            lastChangedSnapshot = snapshot.sequence;
+
+        snapshots.add(snapshot);
+    }
+
+    /**
+     * Returns the ball's state to put in a snapshot
+     * While the clients' extrapolation of the last state sent stays close to the ball, that state is sent again,
+     * which the snapshots' delta encoding reduces to a byte
+     * @param ball the ball's current state
+     * @param tick the current tick
+     * @return the ball's state to send, its tick is in sentBallTick
+     */
+    public Network.EntityState ballState(Network.EntityState ball, long tick) {
+        float time = tick * Constants.GAME_SIMULATION_SPEED;
+        Vector2 predicted = ballModel.sample(time);
+        if(predicted != null && tick >= sentBallTick
+                && predicted.dst2(ball.x, ball.y) <= BALL_CORRECTION_DISTANCE * BALL_CORRECTION_DISTANCE
+                && ballModel.getVelocity().dst2(ball.vx, ball.vy) <= BALL_CORRECTION_SPEED * BALL_CORRECTION_SPEED)
+            return sentBall;
+
+        //The clients extrapolate what they decode, so the model starts from the quantized state too
+        ball.x = Quantizer.position(Quantizer.position(ball.x));
+        ball.y = Quantizer.position(Quantizer.position(ball.y));
+        ball.vx = Quantizer.velocity(Quantizer.velocity(ball.vx));
+        ball.vy = Quantizer.velocity(Quantizer.velocity(ball.vy));
+        ballModel.add(time, ball.x, ball.y, ball.vx, ball.vy);
+        sentBall = ball;
+        sentBallTick = tick;
+        return ball;
+    }
+
+    /**
+     * Hands the ball to its last toucher, once it has been the last one for a while
+     * A free ball goes to its first toucher right away, and a reset or a leaving owner frees it right away
+     * @param lastTouch id of the last player who touched the ball, -1 if none
+     * @param tick the current tick
+     * @return true if the owner changed
+     */
+    public boolean updateBallOwner(int lastTouch, long tick) {
+        if(lastTouch == ballOwner) {
+            ownerCandidate = -1;
+            return false;
+        }
+
+        if(lastTouch != ownerCandidate) {
+            ownerCandidate = lastTouch;
+            candidateSince = tick;
+        }
+
+        if(ballOwner != -1 && lastTouch != -1 && tick - candidateSince < OWNER_HOLD_TICKS)
+            return false;
+
+        ballOwner = lastTouch;
+        ownerCandidate = -1;
+        return true;
+    }
+
+    /**
+     * Returns true if the match's time is over
+     * @return value to return
+     */
+    public boolean isFinished() {
+        return serverMatch.getElapsedTime() >= Constants.GAME_TIME;
+    }
+
+    /**
+     * Returns true if the match has been empty for longer than the idle timeout
+     * @param now the current time in milliseconds
+     * @return value to return
+     */
+    public boolean isAbandoned(long now) {
+        return numPlayers == 0 && now - emptySince >= IDLE_TIMEOUT;
+    }
+
+    /**
+     * Closes the match and frees its physics world, a closed match can't be joined again
+     */
+    public void close() {
+        closed = true;
+        serverMatch.dispose();
     }
 }
@@ -0,0 +1,195 @@
+package server;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import utils.Constants;
+
+public class Matchmaker {
+    //Rooms below this one are left to the clients that still log in to a room of their choice
+    static final int FIRST_ROOM = 1000;
+    //Each shard of a directory numbers its rooms in its own range
+    static final int ROOMS_PER_SHARD = RoomRegistry.MAX_ROOMS;
+
+    static class OpenRoom {
+        int room;
+        int[] players;
+        HashSet<String> names;
+
+        OpenRoom(int room) {
+            this.room = room;
+            players = new int[2];
+            names = new HashSet<String>();
+        }
+
+        boolean hasSlot(int team) {
+            return players[team] < Constants.NUMBER_PLAYER_ONLINE;
+        }
+
+        boolean isFull() {
+            return !hasSlot(0) && !hasSlot(1);
+        }
+    }
+
+    RoomRegistry registry;
+    //Rooms with a free slot, oldest first
+    ArrayDeque<OpenRoom> queue;
+    //Every room whose match hasn't started yet, a full one is kept in case a reserved player never joins or leaves
+    HashMap<Integer, OpenRoom> openRooms;
+    int firstRoom;
+    int nextRoom;
+    int placed;
+
+    /**
+     * Constructor for the matchmaker
+     * Fills the oldest room with a free slot first, so rooms start as soon as possible, and opens new rooms as needed
+     * @param registry the server's rooms, used to skip the numbers already taken
+     */
+    public Matchmaker(RoomRegistry registry) {
+        this.registry = registry;
+        queue = new ArrayDeque<OpenRoom>();
+        openRooms = new HashMap<Integer, OpenRoom>();
+        firstRoom = FIRST_ROOM;
+        nextRoom = firstRoom;
+    }
+
+    /**
+     * Moves the rooms opened from now on to a shard's range, so rooms of different shards never share a number
+     * @param index the shard's index in the directory
+     */
+    public synchronized void setShard(int index) {
+        firstRoom = FIRST_ROOM + index * ROOMS_PER_SHARD;
+        nextRoom = firstRoom;
+    }
+
+    /**
+     * Reserves a slot for a player in the first room that has one for either team
+     * The preferred team is used when it has a slot, the other team otherwise, so teams stay balanced
+     * A room leaves the queue once full, it's still tracked until its match starts
+     * @param name the player's name, a room can't have two players with the same name
+     * @param team the preferred team, or -1 for the team with fewer players
+     * @return the room and team reserved, or null if the server can't host more rooms
+     */
+    public synchronized Network.MatchAssigned place(String name, int team) {
+        if(team != 0 && team != 1)
+            team = -1;
+        OpenRoom openRoom = null;
+        int assignedTeam = -1;
+
+        //Usually the first room fits, others are only looked at when it already has a player with the same name
+        Iterator<OpenRoom> iterator = queue.iterator();
+        while(iterator.hasNext()) {
+            OpenRoom candidate = iterator.next();
+            if(candidate.names.contains(name))
+                continue;
+
+            openRoom = candidate;
+            assignedTeam = chooseTeam(candidate, team);
+            break;
+        }
+
+        if(openRoom == null) {
+            if(registry.size() >= RoomRegistry.MAX_ROOMS)
+                return null;
+
+            while(registry.get(nextRoom) != null || openRooms.containsKey(nextRoom))
+                nextRoom = nextRoomNumber(nextRoom);
+            openRoom = new OpenRoom(nextRoom);
+            nextRoom = nextRoomNumber(nextRoom);
+            queue.add(openRoom);
+            openRooms.put(openRoom.room, openRoom);
+            assignedTeam = chooseTeam(openRoom, team);
+        }
+
+        placed++;
+        openRoom.players[assignedTeam]++;
+        openRoom.names.add(name);
+        if(openRoom.isFull())
+            queue.remove(openRoom);
+
+        Network.MatchAssigned assigned = new Network.MatchAssigned();
+        assigned.room = openRoom.room;
+        assigned.team = assignedTeam;
+        return assigned;
+    }
+
+    /**
+     * Returns the number after a room's, wrapping around at the end of the range
+     * @param room the room's number
+     * @return number to return
+     */
+    private int nextRoomNumber(int room) {
+        return room + 1 < firstRoom + ROOMS_PER_SHARD ? room + 1 : firstRoom;
+    }
+
+    /**
+     * Picks the team of a room a player joins
+     * @param openRoom a room with a free slot
+     * @param team the preferred team, or -1 for any
+     * @return the team to return
+     */
+    private int chooseTeam(OpenRoom openRoom, int team) {
+        if(team != -1 && openRoom.hasSlot(team))
+            return team;
+        if(team != -1)
+            return 1 - team;
+        return openRoom.players[0] <= openRoom.players[1] ? 0 : 1;
+    }
+
+    /**
+     * Frees the slot of a player who left or couldn't join before its room's match started
+     * A full room goes back to the front of the queue, its other players are already waiting in it
+     * Rooms whose match started are no longer tracked, their matches go on without the player
+     * @param room the player's room
+     * @param team the player's team
+     * @param name the player's name
+     */
+    public synchronized void release(int room, int team, String name) {
+        OpenRoom openRoom = openRooms.get(room);
+        if(openRoom == null || !openRoom.names.remove(name))
+            return;
+
+        if(openRoom.isFull())
+            queue.addFirst(openRoom);
+        openRoom.players[team]--;
+    }
+
+    /**
+     * Stops tracking a room once its match starts, its slots aren't offered again
+     * @param room the room's number
+     */
+    public synchronized void started(int room) {
+        OpenRoom openRoom = openRooms.remove(room);
+        if(openRoom != null)
+            queue.remove(openRoom);
+    }
+
+    /**
+     * Returns the number of rooms waiting for players
+     * @return number to return
+     */
+    public synchronized int getOpenRooms() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of players placed since the server started
+     * @return number to return
+     */
+    public synchronized int getPlaced() {
+        return placed;
+    }
+
+    /**
+     * Returns the number of players the rooms waiting for players can still take
+     * @return number to return
+     */
+    public synchronized int getOpenSlots() {
+        int slots = 0;
+        for(OpenRoom openRoom : queue)
+            slots += Constants.NUMBER_PLAYER_ONLINE * 2 - openRoom.players[0] - openRoom.players[1];
+        return slots;
+    }
+}
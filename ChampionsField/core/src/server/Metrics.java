@@ -0,0 +1,175 @@
+package server;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process registry of the server's counters, histograms and gauges
+ * Every series is named like name{label="value",...}, so the report can be read by people and scrapers alike
+ */
+public class Metrics implements MetricsMBean {
+
+    public interface Gauge {
+        long value();
+    }
+
+    ConcurrentHashMap<String, AtomicLong> counters;
+    ConcurrentHashMap<String, Histogram> histograms;
+    ConcurrentHashMap<String, Gauge> gauges;
+
+    public Metrics() {
+        counters = new ConcurrentHashMap<String, AtomicLong>();
+        histograms = new ConcurrentHashMap<String, Histogram>();
+        gauges = new ConcurrentHashMap<String, Gauge>();
+    }
+
+    /**
+     * Builds the labels of a series about a packet type in a room
+     * @param type the packet's type
+     * @param room the room's number, -1 if the connection isn't in one
+     * @return labels to return
+     */
+    public static String labels(String type, int room) {
+        return "{type=\"" + type + "\",room=\"" + room + "\"}";
+    }
+
+    /**
+     * Builds the labels of a series about a room
+     * @param room the room's number
+     * @return labels to return
+     */
+    public static String labels(int room) {
+        return "{room=\"" + room + "\"}";
+    }
+
+    /**
+     * Builds the labels of a series about a connection, they end with its room so the series goes with the room
+     * @param connection the connection's id
+     * @param room the connection's room
+     * @return labels to return
+     */
+    public static String labels(int connection, int room) {
+        return "{connection=\"" + connection + "\",room=\"" + room + "\"}";
+    }
+
+    /**
+     * Builds the labels of a series about a packet type
+     * @param type the packet's type
+     * @return labels to return
+     */
+    public static String labels(String type) {
+        return "{type=\"" + type + "\"}";
+    }
+
+    /**
+     * Adds to a counter, creating it if needed
+     * @param name the counter's name
+     * @param labels the counter's labels, empty for none
+     * @param delta the value to add
+     */
+    public void increment(String name, String labels, long delta) {
+        String key = name + labels;
+        AtomicLong counter = counters.get(key);
+        if(counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(key, created);
+            if(counter == null)
+                counter = created;
+        }
+        counter.addAndGet(delta);
+    }
+
+    /**
+     * Adds a value to a histogram, creating it if needed
+     * @param name the histogram's name
+     * @param labels the histogram's labels, empty for none
+     * @param value the value to add
+     */
+    public void record(String name, String labels, long value) {
+        String key = name + labels;
+        Histogram histogram = histograms.get(key);
+        if(histogram == null) {
+            Histogram created = new Histogram();
+            histogram = histograms.putIfAbsent(key, created);
+            if(histogram == null)
+                histogram = created;
+        }
+        histogram.record(value);
+    }
+
+    /**
+     * Registers a value that is read each time the report is made
+     * @param name the gauge's name
+     * @param gauge the gauge
+     */
+    public void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Forgets every series of a room, so closed rooms don't pile up in the report
+     * @param room the room's number
+     */
+    public void removeRoom(int room) {
+        String suffix = "room=\"" + room + "\"}";
+        for(String key : counters.keySet())
+            if(key.endsWith(suffix))
+                counters.remove(key);
+        for(String key : histograms.keySet())
+            if(key.endsWith(suffix))
+                histograms.remove(key);
+    }
+
+    /**
+     * Returns every series in plain text, one per line and sorted by name
+     * Histograms are reported as their count, sum, max, median and 99th percentile
+     * @return report to return
+     */
+    @Override
+    public String getReport() {
+        TreeMap<String, Long> values = new TreeMap<String, Long>();
+        for(Map.Entry<String, AtomicLong> entry : counters.entrySet())
+            values.put(entry.getKey(), entry.getValue().get());
+        for(Map.Entry<String, Gauge> entry : gauges.entrySet())
+            values.put(entry.getKey(), entry.getValue().value());
+        for(Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            String key = entry.getKey();
+            int split = key.indexOf('{');
+            String name = split == -1 ? key : key.substring(0, split);
+            String labels = split == -1 ? "" : key.substring(split);
+            Histogram histogram = entry.getValue();
+            values.put(name + "_count" + labels, histogram.getCount());
+            values.put(name + "_sum" + labels, histogram.getSum());
+            values.put(name + "_max" + labels, histogram.getMax());
+            values.put(name + "_p50" + labels, histogram.quantile(0.5));
+            values.put(name + "_p99" + labels, histogram.quantile(0.99));
+        }
+
+        StringBuilder report = new StringBuilder();
+        for(Map.Entry<String, Long> entry : values.entrySet())
+            report.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        return report.toString();
+    }
+
+    /**
+     * Returns the value of a counter
+     * @param key the counter's name and labels
+     * @return value to return, 0 if the counter doesn't exist
+     */
+    @Override
+    public long getCounter(String key) {
+        AtomicLong counter = counters.get(key);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * Clears every counter and histogram, gauges are kept
+     */
+    @Override
+    public void reset() {
+        counters.clear();
+        histograms.clear();
+    }
+}
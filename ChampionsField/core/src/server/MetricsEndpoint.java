@@ -0,0 +1,79 @@
+package server;
+
+import com.esotericsoftware.minlog.Log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+public class MetricsEndpoint implements Runnable {
+    static final int READ_TIMEOUT = 2000;
+
+    Metrics metrics;
+    ServerSocket socket;
+
+    /**
+     * Constructor for the endpoint, it only accepts local connections
+     * @param metrics the metrics to serve
+     * @param port the port to listen on
+     * @throws IOException if the port can't be bound
+     */
+    public MetricsEndpoint(Metrics metrics, int port) throws IOException {
+        this.metrics = metrics;
+        socket = new ServerSocket(port, 16, InetAddress.getByName(Network.LOCAL_IP));
+    }
+
+    /**
+     * Starts answering on a daemon thread
+     */
+    public void start() {
+        Thread thread = new Thread(this, "Metrics");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Answers every HTTP request with the metrics report, whatever its path
+     */
+    @Override
+    public void run() {
+        while(!socket.isClosed()) {
+            Socket client = null;
+            try {
+                client = socket.accept();
+                client.setSoTimeout(READ_TIMEOUT);
+
+                //Only the request line matters, the rest of the request is ignored
+                client.getInputStream().read(new byte[1024]);
+                byte[] body = metrics.getReport().getBytes("UTF-8");
+                OutputStream output = client.getOutputStream();
+                output.write(("HTTP/1.0 200 OK\r\nContent-Type: text/plain; charset=utf-8\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes("UTF-8"));
+                output.write(body);
+                output.flush();
+            } catch (IOException e) {
+                Log.debug("[SERVER]: Metrics request failed", e);
+            } finally {
+                if(client != null) {
+                    try {
+                        client.close();
+                    } catch (IOException e) {
+                        //Nothing left to do with it
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting requests
+     */
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            Log.debug("[SERVER]: Couldn't close the metrics socket", e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package server;
+
+public interface MetricsMBean {
+    String getReport();
+
+    long getCounter(String key);
+
+    void reset();
+}
@@ -5,6 +5,8 @@ import com.esotericsoftware.kryonet.EndPoint;
 
 public class Network {
     static public final int PORT = 54555;
+    static public final int UDP_PORT = 54777;
+    static public final int DIRECTORY_PORT = 54600;
     static public final String LOCAL_IP = "127.0.0.1";
     static public final String IPV4_ALPENDORADA = "192.168.1.105";
     static public final String IPV4_PORTO = "192.168.0.102";
@@ -12,14 +14,33 @@ public class Network {
     static public final String IPV4_FEUP = "172.30.25.153";
 
     public static void registerPackets(EndPoint endPoint) {
-        Kryo kryo = endPoint.getKryo();
+        registerPackets(endPoint.getKryo());
+    }
+
+    public static void registerPackets(Kryo kryo) {
         kryo.register(Login.class);
         kryo.register(AddPlayer.class);
-        kryo.register(UpdatePlayer.class);
-        kryo.register(UpdateBall.class);
-        kryo.register(RemovePlayer.class);
+        kryo.register(RemovePlayer.class, new PacketSerializers.RemovePlayerSerializer());
         kryo.register(MatchFull.class);
         kryo.register(ResetPositions.class);
+        kryo.register(PlayerInput.class, new PacketSerializers.PlayerInputSerializer());
+        kryo.register(Score.class, new PacketSerializers.ScoreSerializer());
+        kryo.register(SnapshotDelta.class, new PacketSerializers.SnapshotDeltaSerializer());
+        kryo.register(RequestKeyframe.class);
+        kryo.register(JoinRequest.class);
+        kryo.register(MatchAssigned.class);
+        kryo.register(int[].class);
+        kryo.register(ShardReport.class);
+        kryo.register(ShardRegistered.class);
+        kryo.register(ShardLookup.class);
+        kryo.register(ShardAssigned.class);
+        kryo.register(LockstepInput.class, new PacketSerializers.LockstepInputSerializer());
+        kryo.register(LockstepFrame.class, new PacketSerializers.LockstepFrameSerializer());
+        kryo.register(ClockPing.class);
+        kryo.register(ClockPong.class);
+        kryo.register(MatchStart.class);
+        kryo.register(BallOwner.class);
+        kryo.register(TouchClaim.class);
     }
 
     static public class Login {
@@ -28,7 +49,23 @@ public class Network {
         int room;
     }
 
+    //Asks the server to place the player in any room with a free slot, preferably in the given team or -1 for any
+    static public class JoinRequest {
+        String name;
+        int team;
+    }
+
+    //Tells a client the room and team it was placed in, before the room's players
+    //In a lockstep room the clients simulate the match themselves, from the seed and the relayed inputs
+    static public class MatchAssigned {
+        int room;
+        int team;
+        boolean lockstep;
+        long seed;
+    }
+
     static public class AddPlayer {
+        int id;
         String name;
         int team;
         boolean controlledPlayer;
@@ -36,16 +73,36 @@ public class Network {
         int room;
     }
 
-    static public class UpdatePlayer {
-        public String name;
+    static public class PlayerInput {
+        int sequence;
+        int ackSnapshot;
         float x, y;
-        int team;
-        int room;
     }
 
-    static public class UpdateBall {
+    static public class EntityState {
+        int id;
         float x, y, vx, vy;
-        String lastTouch;
+    }
+
+    static public class WorldSnapshot {
+        int sequence;
+        long tick;
+        EntityState[] players;
+        EntityState ball;
+        //Tick the ball's state was taken at, clients extrapolate it until a newer one is sent
+        long ballTick;
+        int room;
+    }
+
+    static public class SnapshotDelta {
+        int sequence;
+        int baseline;
+        int ackInput;
+        byte[] data;
+        int room;
+    }
+
+    static public class RequestKeyframe {
         int room;
     }
 
@@ -53,13 +110,91 @@ public class Network {
         int room;
     }
 
+    static public class Score {
+        int team;
+        int lastTouch;
+        int room;
+    }
+
     static public class RemovePlayer {
+        int id;
         int team;
-        String name;
         int room;
     }
 
     static public class MatchFull {
         int room;
     }
+
+    //Sent by each server to the directory every second
+    static public class ShardReport {
+        String host;
+        int tcpPort;
+        int udpPort;
+        int players;
+        int openSlots;
+        int joinRequests;
+        int[] rooms;
+    }
+
+    //The directory's answer to a server's first report, the index gives the server its own range of room numbers
+    static public class ShardRegistered {
+        int index;
+    }
+
+    //Asks the directory which server hosts a room, or which one should take a player for ANY_ROOM
+    static public class ShardLookup {
+        int room;
+    }
+
+    static public class ShardAssigned {
+        int room;
+        String host;
+        int tcpPort;
+        int udpPort;
+    }
+
+    //A lockstep client's joystick, sent reliably when it changes
+    static public class LockstepInput {
+        int room;
+        byte x, y;
+    }
+
+    //Every player's joystick for one tick of a lockstep room, two bytes per player in the order of their ids
+    static public class LockstepFrame {
+        int room;
+        int tick;
+        byte[] inputs;
+    }
+
+    //Measures the clocks' offset, clientTime is the client's clock when it's sent and roundTrip its current estimate
+    static public class ClockPing {
+        long clientTime;
+        long roundTrip;
+    }
+
+    //Answers a ping right away, with the server's clock when it's sent
+    static public class ClockPong {
+        long clientTime;
+        long serverTime;
+    }
+
+    //Hands the ball to a player, sent only when its owner changes, id is -1 when nobody owns it
+    static public class BallOwner {
+        int room;
+        int id;
+    }
+
+    //A client's player touched the ball, at the tick of the ball the client saw and where the player was
+    static public class TouchClaim {
+        int room;
+        long tick;
+        float x, y;
+    }
+
+    //The server's clock when the match's first tick started, every client times the match from it
+    static public class MatchStart {
+        int room;
+        long startTime;
+    }
 }
@@ -0,0 +1,152 @@
+package server;
+
+import com.esotericsoftware.minlog.Log;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class NioLoop implements Runnable {
+    static final int SELECT_TIMEOUT = 250;
+
+    NioTransport transport;
+    Selector selector;
+    ConcurrentLinkedQueue<NioPeer> registrations;
+    ConcurrentLinkedQueue<NioPeer> writeInterests;
+    ArrayList<NioPeer> peers;
+    volatile boolean running;
+    Thread thread;
+
+    /**
+     * Constructor for one of the transport's I/O threads, it reads its peers and finishes the writes they couldn't
+     * @param transport the transport
+     * @throws IOException if the selector can't be opened
+     */
+    public NioLoop(NioTransport transport) throws IOException {
+        this.transport = transport;
+        selector = Selector.open();
+        registrations = new ConcurrentLinkedQueue<NioPeer>();
+        writeInterests = new ConcurrentLinkedQueue<NioPeer>();
+        peers = new ArrayList<NioPeer>();
+    }
+
+    /**
+     * Starts the loop's thread
+     * @param name the thread's name
+     */
+    public void start(String name) {
+        running = true;
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Hands a new peer to the loop
+     * @param peer the peer
+     */
+    public void register(NioPeer peer) {
+        registrations.add(peer);
+        selector.wakeup();
+    }
+
+    /**
+     * Asks the loop to finish a peer's write once its socket can take more
+     * @param peer the peer
+     */
+    public void interestWrite(NioPeer peer) {
+        writeInterests.add(peer);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        long lastCheck = System.currentTimeMillis();
+        while(running) {
+            try {
+                selector.select(SELECT_TIMEOUT);
+            } catch (IOException e) {
+                Log.error("[SERVER]: Selector failed", e);
+                break;
+            }
+
+            addRegistrations();
+            addWriteInterests();
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while(keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                NioPeer peer = (NioPeer) key.attachment();
+                if(!key.isValid())
+                    continue;
+
+                if(key.isWritable()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    peer.flush();
+                }
+                if(key.isValid() && key.isReadable()) {
+                    try {
+                        peer.read();
+                    } catch (IOException e) {
+                        Log.debug("[SERVER]: Peer " + peer.getID() + " disconnected: " + e.getMessage());
+                        peer.close();
+                    } catch (RuntimeException e) {
+                        Log.warn("[SERVER]: Unable to read from peer " + peer.getID(), e);
+                        peer.close();
+                    }
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            if(now - lastCheck >= SELECT_TIMEOUT) {
+                lastCheck = now;
+                for(int i = peers.size() - 1; i >= 0; i--) {
+                    NioPeer peer = peers.get(i);
+                    if(peer.isClosed())
+                        peers.remove(i);
+                    else
+                        peer.checkTimeouts(now);
+                }
+            }
+        }
+
+        try {
+            selector.close();
+        } catch (IOException e) {
+            Log.debug("[SERVER]: Unable to close selector", e);
+        }
+    }
+
+    private void addRegistrations() {
+        NioPeer peer;
+        while((peer = registrations.poll()) != null) {
+            try {
+                peer.key = peer.channel.register(selector, SelectionKey.OP_READ, peer);
+                peers.add(peer);
+            } catch (ClosedChannelException e) {
+                peer.close();
+            }
+        }
+    }
+
+    private void addWriteInterests() {
+        NioPeer peer;
+        while((peer = writeInterests.poll()) != null) {
+            if(peer.key != null && peer.key.isValid())
+                peer.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Stops the loop, its peers are closed by the transport
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+}
@@ -0,0 +1,250 @@
+package server;
+
+import com.esotericsoftware.kryonet.FrameworkMessage;
+import com.esotericsoftware.minlog.Log;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class NioPeer implements Peer {
+    //KryoNet's framing, each TCP packet is preceded by its length
+    static final int LENGTH_LENGTH = 4;
+    static final int MAX_GATHER = 16;
+
+    int id;
+    NioTransport transport;
+    NioLoop loop;
+    SocketChannel channel;
+    SelectionKey key;
+    volatile InetSocketAddress udpAddress;
+
+    ByteBuffer readBuffer;
+    ConcurrentLinkedQueue<ByteBuffer> writeQueue;
+    AtomicInteger pendingBytes;
+    ReentrantLock writeLock;
+    ByteBuffer[] gather;
+    AtomicBoolean closed;
+    volatile long lastReadTime;
+    volatile long lastWriteTime;
+
+    /**
+     * Constructor for a peer of the NIO transport
+     * @param id the peer's id
+     * @param transport the transport that accepted it
+     * @param loop the I/O loop that reads it
+     * @param channel the accepted socket
+     */
+    public NioPeer(int id, NioTransport transport, NioLoop loop, SocketChannel channel) {
+        this.id = id;
+        this.transport = transport;
+        this.loop = loop;
+        this.channel = channel;
+        readBuffer = ByteBuffer.allocateDirect(MPServer.OBJECT_BUFFER_SIZE + LENGTH_LENGTH);
+        writeQueue = new ConcurrentLinkedQueue<ByteBuffer>();
+        pendingBytes = new AtomicInteger();
+        writeLock = new ReentrantLock();
+        gather = new ByteBuffer[MAX_GATHER];
+        closed = new AtomicBoolean(false);
+        lastReadTime = System.currentTimeMillis();
+        lastWriteTime = lastReadTime;
+    }
+
+    @Override
+    public int getID() {
+        return id;
+    }
+
+    /**
+     * Frames the packet in a pooled buffer and writes it, or queues it for the loop if the socket is full
+     * A peer whose queue outgrows the write buffer size is closed, like KryoNet does
+     */
+    @Override
+    public int sendReliable(Object object) {
+        if(closed.get())
+            return 0;
+
+        ByteBuffer frame = transport.pool.acquire();
+        try {
+            frame.position(LENGTH_LENGTH);
+            transport.getSerialization().write(id, frame, object);
+        } catch (RuntimeException e) {
+            transport.pool.release(frame);
+            Log.warn("[SERVER]: Unable to serialize " + object.getClass().getSimpleName() + " for peer " + id, e);
+            return 0;
+        }
+        int length = frame.position() - LENGTH_LENGTH;
+        frame.putInt(0, length);
+        frame.flip();
+
+        writeQueue.add(frame);
+        if(pendingBytes.addAndGet(frame.remaining()) > MPServer.WRITE_BUFFER_SIZE) {
+            Log.warn("[SERVER]: Write buffer of peer " + id + " overflowed");
+            close();
+            return 0;
+        }
+
+        flush();
+        return length + LENGTH_LENGTH;
+    }
+
+    @Override
+    public int sendUnreliable(Object object) {
+        InetSocketAddress address = udpAddress;
+        if(address == null)
+            return sendReliable(object);
+
+        return transport.sendDatagram(this, address, object);
+    }
+
+    @Override
+    public int getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * Writes as much of the queue as the socket takes, gathering several packets in each write
+     * Only one thread writes at a time, a sender that finds the lock taken leaves its packet to the writer
+     */
+    void flush() {
+        while(!writeQueue.isEmpty() && !closed.get()) {
+            if(!writeLock.tryLock())
+                return;
+
+            try {
+                if(!writeQueued()) {
+                    loop.interestWrite(this);
+                    return;
+                }
+            } catch (IOException e) {
+                Log.debug("[SERVER]: Unable to write to peer " + id, e);
+                close();
+                return;
+            } finally {
+                writeLock.unlock();
+            }
+            //Checks the queue again, a packet may have been added while the lock was held
+        }
+    }
+
+    /**
+     * Writes the queued packets until the queue is empty or the socket is full, must hold the write lock
+     * @return true if the queue was emptied
+     * @throws IOException if the socket is closed
+     */
+    private boolean writeQueued() throws IOException {
+        while(true) {
+            int count = 0;
+            Iterator<ByteBuffer> iterator = writeQueue.iterator();
+            while(count < MAX_GATHER && iterator.hasNext())
+                gather[count++] = iterator.next();
+            if(count == 0)
+                return true;
+
+            long written = channel.write(gather, 0, count);
+            if(written > 0) {
+                lastWriteTime = System.currentTimeMillis();
+                pendingBytes.addAndGet((int) -written);
+            }
+
+            //Only the writer takes packets from the head, so the written ones are still there
+            boolean full = false;
+            for(int i = 0; i < count; i++) {
+                if(!full && gather[i].hasRemaining())
+                    full = true;
+                if(!full)
+                    transport.pool.release(writeQueue.poll());
+                gather[i] = null;
+            }
+            if(full)
+                return false;
+        }
+    }
+
+    /**
+     * Reads what the socket has and hands every complete packet to the listener, runs on the peer's loop
+     * @throws IOException if the socket is closed or the peer breaks the framing
+     */
+    void read() throws IOException {
+        if(channel.read(readBuffer) == -1)
+            throw new IOException("Connection closed by peer");
+        lastReadTime = System.currentTimeMillis();
+
+        readBuffer.flip();
+        while(readBuffer.remaining() >= LENGTH_LENGTH) {
+            int start = readBuffer.position();
+            int length = readBuffer.getInt(start);
+            if(length <= 0 || length > readBuffer.capacity() - LENGTH_LENGTH)
+                throw new IOException("Invalid packet length " + length);
+            if(readBuffer.remaining() < LENGTH_LENGTH + length)
+                break;
+
+            int limit = readBuffer.limit();
+            readBuffer.position(start + LENGTH_LENGTH);
+            readBuffer.limit(start + LENGTH_LENGTH + length);
+            Object object = transport.getSerialization().read(id, readBuffer);
+            readBuffer.limit(limit);
+            readBuffer.position(start + LENGTH_LENGTH + length);
+
+            received(object);
+        }
+        readBuffer.compact();
+    }
+
+    /**
+     * Answers KryoNet's own messages and passes the others on
+     * @param object the received packet
+     */
+    void received(Object object) {
+        if(object instanceof FrameworkMessage.Ping) {
+            FrameworkMessage.Ping ping = (FrameworkMessage.Ping) object;
+            if(!ping.isReply) {
+                ping.isReply = true;
+                sendReliable(ping);
+            }
+            return;
+        }
+        if(object instanceof FrameworkMessage)
+            return;
+
+        transport.listener.received(this, object);
+    }
+
+    /**
+     * Sends a keep alive if nothing was written for a while and closes the peer if nothing was read for too long
+     * @param now the current time in milliseconds
+     */
+    void checkTimeouts(long now) {
+        if(now - lastReadTime > NioTransport.TIMEOUT) {
+            Log.debug("[SERVER]: Peer " + id + " timed out");
+            close();
+        } else if(now - lastWriteTime > NioTransport.KEEP_ALIVE) {
+            sendReliable(FrameworkMessage.keepAlive);
+        }
+    }
+
+    @Override
+    public void close() {
+        if(!closed.compareAndSet(false, true))
+            return;
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.debug("[SERVER]: Unable to close peer " + id, e);
+        }
+        transport.removePeer(this);
+        transport.listener.disconnected(this);
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+}
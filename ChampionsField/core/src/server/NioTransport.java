@@ -0,0 +1,235 @@
+package server;
+
+import com.esotericsoftware.kryonet.FrameworkMessage;
+import com.esotericsoftware.minlog.Log;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transport on plain NIO, compatible with KryoNet clients
+ * Sockets are spread over several selector threads, packets are written from the sending thread with gathering writes
+ * into pooled direct buffers, and every thread serializes with its own Kryo
+ */
+public class NioTransport implements Transport {
+    //Same timings as KryoNet, so its clients neither time out nor get timed out
+    static final int KEEP_ALIVE = 8000;
+    static final int TIMEOUT = 12000;
+    static final int MAX_POOLED_BUFFERS = 4096;
+
+    Metrics metrics;
+    RoomRegistry rooms;
+    TransportListener listener;
+    ThreadLocal<ServerSerialization> serializations;
+    BufferPool pool;
+
+    ServerSocketChannel serverChannel;
+    DatagramChannel udpChannel;
+    NioLoop[] loops;
+    ConcurrentHashMap<Integer, NioPeer> peers;
+    ConcurrentHashMap<SocketAddress, NioPeer> udpPeers;
+    AtomicInteger nextId;
+    int nextLoop;
+    volatile boolean running;
+
+    /**
+     * Constructor for the transport
+     * @param metrics where the packets are counted
+     * @param rooms the rooms the peers joined
+     * @param threads number of selector threads
+     * @throws IOException if a selector can't be opened
+     */
+    public NioTransport(final Metrics metrics, final RoomRegistry rooms, int threads) throws IOException {
+        this.metrics = metrics;
+        this.rooms = rooms;
+        serializations = new ThreadLocal<ServerSerialization>() {
+            @Override
+            protected ServerSerialization initialValue() {
+                return new ServerSerialization(metrics, rooms);
+            }
+        };
+        pool = new BufferPool(MPServer.OBJECT_BUFFER_SIZE + NioPeer.LENGTH_LENGTH, MAX_POOLED_BUFFERS);
+        peers = new ConcurrentHashMap<Integer, NioPeer>();
+        udpPeers = new ConcurrentHashMap<SocketAddress, NioPeer>();
+        nextId = new AtomicInteger();
+
+        loops = new NioLoop[threads];
+        for(int i = 0; i < threads; i++)
+            loops[i] = new NioLoop(this);
+    }
+
+    /**
+     * Returns the calling thread's serialization
+     * @return serialization to return
+     */
+    ServerSerialization getSerialization() {
+        return serializations.get();
+    }
+
+    @Override
+    public void setListener(TransportListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void bind(int tcpPort, int udpPort) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(new InetSocketAddress(tcpPort));
+
+        udpChannel = DatagramChannel.open();
+        udpChannel.socket().bind(new InetSocketAddress(udpPort));
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for(int i = 0; i < loops.length; i++)
+            loops[i].start("NIO " + i);
+
+        Thread accept = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "NIO accept");
+        accept.setDaemon(true);
+        accept.start();
+
+        Thread udp = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receiveDatagrams();
+            }
+        }, "NIO UDP");
+        udp.setDaemon(true);
+        udp.start();
+    }
+
+    /**
+     * Accepts connections, gives each one to a loop and starts KryoNet's registration by sending its id
+     */
+    private void accept() {
+        while(running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+
+                NioLoop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                NioPeer peer = new NioPeer(nextId.incrementAndGet(), this, loop, channel);
+                peers.put(peer.getID(), peer);
+                loop.register(peer);
+
+                FrameworkMessage.RegisterTCP registerTCP = new FrameworkMessage.RegisterTCP();
+                registerTCP.connectionID = peer.getID();
+                peer.sendReliable(registerTCP);
+                listener.connected(peer);
+            } catch (IOException e) {
+                if(running)
+                    Log.warn("[SERVER]: Unable to accept a connection", e);
+            }
+        }
+    }
+
+    /**
+     * Reads the UDP socket, binding each peer's address when it registers it like KryoNet's clients do
+     */
+    private void receiveDatagrams() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MPServer.OBJECT_BUFFER_SIZE);
+        while(running) {
+            try {
+                buffer.clear();
+                SocketAddress address = udpChannel.receive(buffer);
+                buffer.flip();
+
+                NioPeer peer = udpPeers.get(address);
+                Object object = getSerialization().read(peer == null ? -1 : peer.getID(), buffer);
+
+                if(object instanceof FrameworkMessage.RegisterUDP) {
+                    NioPeer registering = peers.get(((FrameworkMessage.RegisterUDP) object).connectionID);
+                    if(registering == null)
+                        continue;
+                    if(registering.udpAddress == null) {
+                        registering.udpAddress = (InetSocketAddress) address;
+                        udpPeers.put(address, registering);
+                    }
+                    registering.sendReliable(new FrameworkMessage.RegisterUDP());
+                    continue;
+                }
+
+                if(peer != null && !(object instanceof FrameworkMessage))
+                    listener.received(peer, object);
+            } catch (IOException e) {
+                if(running)
+                    Log.warn("[SERVER]: Unable to receive a datagram", e);
+            } catch (RuntimeException e) {
+                Log.debug("[SERVER]: Invalid datagram", e);
+            }
+        }
+    }
+
+    /**
+     * Sends a packet to a peer over UDP
+     * @param peer the receiving peer
+     * @param address the peer's UDP address
+     * @param object the packet
+     * @return number of bytes written
+     */
+    int sendDatagram(NioPeer peer, InetSocketAddress address, Object object) {
+        ByteBuffer buffer = pool.acquire();
+        try {
+            getSerialization().write(peer.getID(), buffer, object);
+            buffer.flip();
+            return udpChannel.send(buffer, address);
+        } catch (IOException e) {
+            Log.debug("[SERVER]: Unable to send a datagram to peer " + peer.getID(), e);
+            return 0;
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * Forgets a closed peer
+     * @param peer the peer
+     */
+    void removePeer(NioPeer peer) {
+        peers.remove(peer.getID());
+        if(peer.udpAddress != null)
+            udpPeers.remove(peer.udpAddress);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for(NioPeer peer : peers.values())
+            peer.close();
+        for(NioLoop loop : loops)
+            loop.stop();
+        try {
+            serverChannel.close();
+            udpChannel.close();
+        } catch (IOException e) {
+            Log.debug("[SERVER]: Unable to close the server's sockets", e);
+        }
+    }
+
+    @Override
+    public Encoded encode(Object object) {
+        return serializations.get().encode(object);
+    }
+
+    @Override
+    public int getPeerCount() {
+        return peers.size();
+    }
+}
@@ -0,0 +1,170 @@
+package server;
+
+public class Outbox {
+    //Snapshots go over UDP, so a client that doesn't acknowledge a sent snapshot for this many ticks is congested
+    static final int ACK_TIMEOUT_TICKS = 30;
+    static final int SENT_HISTORY = 16;
+    //Above this many bytes waiting in the TCP write buffer the reliable packets aren't draining
+    static final int WRITE_BUFFER_THRESHOLD = MPServer.WRITE_BUFFER_SIZE / 2;
+    static final int BYTES_PER_TICK = 256;
+    static final int MAX_ALLOWANCE = 4096;
+    static final int DEMOTE_TICKS = 60;
+    static final int PROMOTE_TICKS = 300;
+    static final int DISCONNECT_TICKS = 600;
+    static final int MAX_RATE_DIVIDER = 8;
+
+    Peer peer;
+    Network.WorldSnapshot pending;
+    int allowance;
+    int rateDivider;
+    int congestedTicks;
+    int clearTicks;
+    int coalesced;
+    int backloggedTicks;
+
+    //Ring of the snapshots sent and not acknowledged yet, with the tick each one was sent at
+    int[] sentSequences;
+    int[] sentTicks;
+    int sentFirst;
+    int sentSize;
+    int ticks;
+
+    /**
+     * Constructor for a connection's outbox
+     * Holds only the newest snapshot for the connection, so a slow client skips states instead of queueing them
+     * @param peer the receiving peer
+     */
+    public Outbox(Peer peer) {
+        this.peer = peer;
+        pending = null;
+        allowance = MAX_ALLOWANCE;
+        rateDivider = 1;
+        congestedTicks = 0;
+        clearTicks = 0;
+        coalesced = 0;
+        backloggedTicks = 0;
+        sentSequences = new int[SENT_HISTORY];
+        sentTicks = new int[SENT_HISTORY];
+        sentFirst = 0;
+        sentSize = 0;
+        ticks = 0;
+    }
+
+    /**
+     * Replaces the waiting snapshot with a newer one
+     * A demoted connection only takes one snapshot out of every few
+     * @param snapshot the new snapshot
+     */
+    public void offer(Network.WorldSnapshot snapshot) {
+        if(snapshot.sequence % rateDivider != 0)
+            return;
+
+        if(pending != null)
+            coalesced++;
+        pending = snapshot;
+    }
+
+    /**
+     * Refills the byte budget and updates the connection's congestion, must be called once per tick
+     * A connection that stays congested is demoted to a lower snapshot rate, one that stays clear is promoted back
+     * @param ackedSnapshot the last snapshot the client acknowledged, every snapshot sent before it counts as delivered
+     */
+    public void update(int ackedSnapshot) {
+        ticks++;
+        allowance = Math.min(allowance + BYTES_PER_TICK, MAX_ALLOWANCE);
+        while(sentSize > 0 && sentSequences[sentFirst] - ackedSnapshot <= 0) {
+            sentFirst = (sentFirst + 1) % SENT_HISTORY;
+            sentSize--;
+        }
+
+        if(peer.getPendingBytes() >= WRITE_BUFFER_THRESHOLD)
+            backloggedTicks++;
+        else backloggedTicks = 0;
+
+        if(isCongested()) {
+            clearTicks = 0;
+            congestedTicks++;
+            if(congestedTicks % DEMOTE_TICKS == 0 && rateDivider < MAX_RATE_DIVIDER)
+                rateDivider *= 2;
+        } else {
+            congestedTicks = 0;
+            clearTicks++;
+            if(clearTicks % PROMOTE_TICKS == 0 && rateDivider > 1)
+                rateDivider /= 2;
+        }
+    }
+
+    /**
+     * Takes the waiting snapshot if the socket is writable and the budget isn't spent
+     * @return the snapshot to send, or null if there's none or it has to wait
+     */
+    public Network.WorldSnapshot poll() {
+        if(pending == null || allowance < 0)
+            return null;
+
+        Network.WorldSnapshot snapshot = pending;
+        pending = null;
+        return snapshot;
+    }
+
+    /**
+     * Records a snapshot sent, and charges its bytes to the budget, the budget may go into debt for one packet
+     * When the ring is full the oldest snapshot is forgotten, the next one is nearly as old
+     * @param sequence the snapshot's sequence
+     * @param bytes number of bytes written
+     */
+    public void sent(int sequence, int bytes) {
+        allowance -= bytes;
+        if(sentSize == SENT_HISTORY) {
+            sentFirst = (sentFirst + 1) % SENT_HISTORY;
+            sentSize--;
+        }
+
+        int index = (sentFirst + sentSize) % SENT_HISTORY;
+        sentSequences[index] = sequence;
+        sentTicks[index] = ticks;
+        sentSize++;
+    }
+
+    /**
+     * Returns true if the connection has been congested for too long even at the lowest rate,
+     * or if its reliable packets haven't drained for as long, before its write buffer overflows
+     * @return value to return
+     */
+    public boolean isStalled() {
+        return (rateDivider == MAX_RATE_DIVIDER && congestedTicks >= DISCONNECT_TICKS) || backloggedTicks >= DISCONNECT_TICKS;
+    }
+
+    /**
+     * Returns the number of ticks the oldest snapshot not acknowledged yet has been waiting
+     * @return ticks to return, 0 if every snapshot sent was acknowledged
+     */
+    public int getAckLag() {
+        return sentSize == 0 ? 0 : ticks - sentTicks[sentFirst];
+    }
+
+    /**
+     * Returns true if the connection can't take what it's being offered
+     * Judged by the acknowledgements of the UDP snapshots, a late one means they're lost or queued on the way
+     * @return value to return
+     */
+    private boolean isCongested() {
+        return getAckLag() > ACK_TIMEOUT_TICKS || (pending != null && allowance < 0);
+    }
+
+    /**
+     * Returns the connection's current snapshot rate divider
+     * @return 1 at full rate, higher once demoted
+     */
+    public int getRateDivider() {
+        return rateDivider;
+    }
+
+    /**
+     * Returns the number of snapshots replaced before they could be sent
+     * @return number to return
+     */
+    public int getCoalesced() {
+        return coalesced;
+    }
+}
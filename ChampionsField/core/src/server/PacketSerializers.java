@@ -0,0 +1,187 @@
+package server;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * Serializers for the packets sent many times per second
+ * Small ints are written as varints and velocities as fixed point, ids replace the players' names
+ * They can also copy their packets, for the transports that pass packets without serializing them
+ */
+public class PacketSerializers {
+
+    static public class PlayerInputSerializer extends Serializer<Network.PlayerInput> {
+        @Override
+        public void write(Kryo kryo, Output output, Network.PlayerInput playerInput) {
+            output.writeInt(playerInput.sequence, true);
+            output.writeInt(playerInput.ackSnapshot, true);
+            output.writeInt(Quantizer.velocity(playerInput.x), false);
+            output.writeInt(Quantizer.velocity(playerInput.y), false);
+        }
+
+        @Override
+        public Network.PlayerInput read(Kryo kryo, Input input, Class<Network.PlayerInput> type) {
+            Network.PlayerInput playerInput = new Network.PlayerInput();
+            playerInput.sequence = input.readInt(true);
+            playerInput.ackSnapshot = input.readInt(true);
+            playerInput.x = Quantizer.velocity(input.readInt(false));
+            playerInput.y = Quantizer.velocity(input.readInt(false));
+            return playerInput;
+        }
+
+        @Override
+        public Network.PlayerInput copy(Kryo kryo, Network.PlayerInput original) {
+            Network.PlayerInput playerInput = new Network.PlayerInput();
+            playerInput.sequence = original.sequence;
+            playerInput.ackSnapshot = original.ackSnapshot;
+            playerInput.x = original.x;
+            playerInput.y = original.y;
+            return playerInput;
+        }
+    }
+
+    static public class SnapshotDeltaSerializer extends Serializer<Network.SnapshotDelta> {
+        @Override
+        public void write(Kryo kryo, Output output, Network.SnapshotDelta delta) {
+            output.writeInt(delta.sequence, true);
+            output.writeInt(delta.baseline, true);
+            output.writeInt(delta.ackInput, true);
+            output.writeInt(delta.room, true);
+            output.writeInt(delta.data.length, true);
+            output.writeBytes(delta.data);
+        }
+
+        @Override
+        public Network.SnapshotDelta read(Kryo kryo, Input input, Class<Network.SnapshotDelta> type) {
+            Network.SnapshotDelta delta = new Network.SnapshotDelta();
+            delta.sequence = input.readInt(true);
+            delta.baseline = input.readInt(true);
+            delta.ackInput = input.readInt(true);
+            delta.room = input.readInt(true);
+            delta.data = input.readBytes(input.readInt(true));
+            return delta;
+        }
+
+        @Override
+        public Network.SnapshotDelta copy(Kryo kryo, Network.SnapshotDelta original) {
+            Network.SnapshotDelta delta = new Network.SnapshotDelta();
+            delta.sequence = original.sequence;
+            delta.baseline = original.baseline;
+            delta.ackInput = original.ackInput;
+            delta.room = original.room;
+            delta.data = original.data.clone();
+            return delta;
+        }
+    }
+
+    static public class RemovePlayerSerializer extends Serializer<Network.RemovePlayer> {
+        @Override
+        public void write(Kryo kryo, Output output, Network.RemovePlayer removePlayer) {
+            output.writeInt(removePlayer.id, true);
+            output.writeInt(removePlayer.team, true);
+            output.writeInt(removePlayer.room, true);
+        }
+
+        @Override
+        public Network.RemovePlayer read(Kryo kryo, Input input, Class<Network.RemovePlayer> type) {
+            Network.RemovePlayer removePlayer = new Network.RemovePlayer();
+            removePlayer.id = input.readInt(true);
+            removePlayer.team = input.readInt(true);
+            removePlayer.room = input.readInt(true);
+            return removePlayer;
+        }
+
+        @Override
+        public Network.RemovePlayer copy(Kryo kryo, Network.RemovePlayer original) {
+            Network.RemovePlayer removePlayer = new Network.RemovePlayer();
+            removePlayer.id = original.id;
+            removePlayer.team = original.team;
+            removePlayer.room = original.room;
+            return removePlayer;
+        }
+    }
+
+    static public class ScoreSerializer extends Serializer<Network.Score> {
+        @Override
+        public void write(Kryo kryo, Output output, Network.Score score) {
+            output.writeInt(score.team, true);
+            output.writeInt(score.lastTouch + 1, true);
+            output.writeInt(score.room, true);
+        }
+
+        @Override
+        public Network.Score read(Kryo kryo, Input input, Class<Network.Score> type) {
+            Network.Score score = new Network.Score();
+            score.team = input.readInt(true);
+            score.lastTouch = input.readInt(true) - 1;
+            score.room = input.readInt(true);
+            return score;
+        }
+
+        @Override
+        public Network.Score copy(Kryo kryo, Network.Score original) {
+            Network.Score score = new Network.Score();
+            score.team = original.team;
+            score.lastTouch = original.lastTouch;
+            score.room = original.room;
+            return score;
+        }
+    }
+
+    static public class LockstepInputSerializer extends Serializer<Network.LockstepInput> {
+        @Override
+        public void write(Kryo kryo, Output output, Network.LockstepInput lockstepInput) {
+            output.writeInt(lockstepInput.room, true);
+            output.writeByte(lockstepInput.x);
+            output.writeByte(lockstepInput.y);
+        }
+
+        @Override
+        public Network.LockstepInput read(Kryo kryo, Input input, Class<Network.LockstepInput> type) {
+            Network.LockstepInput lockstepInput = new Network.LockstepInput();
+            lockstepInput.room = input.readInt(true);
+            lockstepInput.x = input.readByte();
+            lockstepInput.y = input.readByte();
+            return lockstepInput;
+        }
+
+        @Override
+        public Network.LockstepInput copy(Kryo kryo, Network.LockstepInput original) {
+            Network.LockstepInput lockstepInput = new Network.LockstepInput();
+            lockstepInput.room = original.room;
+            lockstepInput.x = original.x;
+            lockstepInput.y = original.y;
+            return lockstepInput;
+        }
+    }
+
+    static public class LockstepFrameSerializer extends Serializer<Network.LockstepFrame> {
+        @Override
+        public void write(Kryo kryo, Output output, Network.LockstepFrame frame) {
+            output.writeInt(frame.room, true);
+            output.writeInt(frame.tick, true);
+            output.writeInt(frame.inputs.length, true);
+            output.writeBytes(frame.inputs);
+        }
+
+        @Override
+        public Network.LockstepFrame read(Kryo kryo, Input input, Class<Network.LockstepFrame> type) {
+            Network.LockstepFrame frame = new Network.LockstepFrame();
+            frame.room = input.readInt(true);
+            frame.tick = input.readInt(true);
+            frame.inputs = input.readBytes(input.readInt(true));
+            return frame;
+        }
+
+        @Override
+        public Network.LockstepFrame copy(Kryo kryo, Network.LockstepFrame original) {
+            Network.LockstepFrame frame = new Network.LockstepFrame();
+            frame.room = original.room;
+            frame.tick = original.tick;
+            frame.inputs = original.inputs.clone();
+            return frame;
+        }
+    }
+}
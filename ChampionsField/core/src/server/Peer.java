@@ -0,0 +1,37 @@
+package server;
+
+/**
+ * One end of a connection, whatever transport carries it
+ */
+public interface Peer {
+    /**
+     * Returns the connection's id, unique in its transport
+     * @return id to return
+     */
+    int getID();
+
+    /**
+     * Sends a packet that must arrive, in order
+     * @param object the packet
+     * @return number of bytes written
+     */
+    int sendReliable(Object object);
+
+    /**
+     * Sends a packet that may be lost, over UDP if the connection has a UDP channel and reliably otherwise
+     * @param object the packet
+     * @return number of bytes written
+     */
+    int sendUnreliable(Object object);
+
+    /**
+     * Returns the number of bytes waiting to be written to the reliable channel
+     * @return bytes to return
+     */
+    int getPendingBytes();
+
+    /**
+     * Closes the connection, the listener is told once
+     */
+    void close();
+}
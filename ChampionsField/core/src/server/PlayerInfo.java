@@ -6,6 +6,21 @@ public class PlayerInfo {
     float x, y;
     int team;
     String name;
+    int id;
+    Outbox outbox;
+    SequenceFilter inputSequence = new SequenceFilter();
+
+    //Snapshots sent to this player are encoded against the last one it acknowledged
+    int ackedSnapshot;
+    int lastKeyframe;
+    boolean keyframeRequested = true;
+    int sentInputAck;
+
+    //The last joystick of a lockstep room's player, relayed on every tick
+    byte lockstepX, lockstepY;
+
+    //The client's estimate of its round trip to the server, in microseconds
+    long roundTrip;
 
     public PlayerInfo(int team, String name) {
         this.x = x;
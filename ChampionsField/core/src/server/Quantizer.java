@@ -0,0 +1,66 @@
+package server;
+
+import utils.Constants;
+
+public class Quantizer {
+    //Steps per meter and per meter per second, positions are kept under a millimeter of error
+    static final float POSITION_SCALE = 1024;
+    static final float VELOCITY_SCALE = 256;
+    //A lockstep joystick fits in a byte per axis
+    static final float INPUT_SCALE = 127 / Constants.PLAYERS_SPEED;
+
+    /**
+     * Converts a position to the fixed point value sent on the wire
+     * @param value position in meters
+     * @return fixed point position
+     */
+    public static int position(float value) {
+        return Math.round(value * POSITION_SCALE);
+    }
+
+    /**
+     * Converts a fixed point position back to meters
+     * @param value fixed point position
+     * @return position in meters
+     */
+    public static float position(int value) {
+        return value / POSITION_SCALE;
+    }
+
+    /**
+     * Converts a velocity to the fixed point value sent on the wire
+     * @param value velocity in meters per second
+     * @return fixed point velocity
+     */
+    public static int velocity(float value) {
+        return Math.round(value * VELOCITY_SCALE);
+    }
+
+    /**
+     * Converts a fixed point velocity back to meters per second
+     * @param value fixed point velocity
+     * @return velocity in meters per second
+     */
+    public static float velocity(int value) {
+        return value / VELOCITY_SCALE;
+    }
+
+    /**
+     * Converts a joystick velocity to the byte sent in lockstep rooms
+     * @param value velocity in meters per second, up to the players' speed
+     * @return byte to return
+     */
+    public static byte input(float value) {
+        return (byte) Math.max(-127, Math.min(127, Math.round(value * INPUT_SCALE)));
+    }
+
+    /**
+     * Converts a lockstep joystick byte back to a velocity
+     * Every client does the same conversion, so they all step the same velocity
+     * @param value the byte
+     * @return velocity in meters per second
+     */
+    public static float input(byte value) {
+        return value / INPUT_SCALE;
+    }
+}
@@ -0,0 +1,73 @@
+package server;
+
+import com.esotericsoftware.minlog.Log;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RoomExecutor implements Executor {
+    static final int BATCH_SIZE = 64;
+
+    Executor workers;
+    ConcurrentLinkedQueue<Runnable> tasks;
+    AtomicInteger pending;
+    Runnable drain;
+
+    /**
+     * Constructor for the room's executor
+     * Runs the room's tasks one at a time and in order, borrowing a thread from the workers only while it has work
+     * @param workers the pool shared by every room
+     */
+    public RoomExecutor(Executor workers) {
+        this.workers = workers;
+        tasks = new ConcurrentLinkedQueue<Runnable>();
+        pending = new AtomicInteger(0);
+        drain = new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+    }
+
+    /**
+     * Queues a task, it runs after every task queued before it and never at the same time as another one of this room
+     * @param task the task to run
+     */
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if(pending.getAndIncrement() == 0)
+            workers.execute(drain);
+    }
+
+    /**
+     * Runs the queued tasks until the queue is empty or a batch is done
+     */
+    private void drain() {
+        for(int i = 0; i < BATCH_SIZE; i++) {
+            Runnable task = tasks.poll();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                //Errors too, a task that skips the count below would leave the room never scheduled again
+                Log.error("[SERVER]: Room task failed", e);
+            }
+
+            if(pending.decrementAndGet() == 0)
+                return;
+        }
+
+        //Gives the thread back, so a busy room can't starve the others
+        workers.execute(drain);
+    }
+
+    /**
+     * Returns the number of tasks waiting or running
+     * @return queue depth to return
+     */
+    public int getQueueDepth() {
+        return pending.get();
+    }
+}
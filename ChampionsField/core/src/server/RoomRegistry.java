@@ -0,0 +1,167 @@
+package server;
+
+import com.esotericsoftware.minlog.Log;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+public class RoomRegistry {
+    static final int MAX_ROOMS = 10000;
+
+    ConcurrentHashMap<Integer, MatchInfo> rooms;
+    ConcurrentHashMap<Integer, MatchInfo> connectionRooms;
+    Executor workers;
+    Metrics metrics;
+    //The mode of the rooms created from now on
+    volatile boolean lockstep;
+
+    /**
+     * Constructor for the registry
+     * @param workers the pool that runs the rooms' executors
+     * @param metrics the server's metrics, a room's series are dropped when it closes
+     */
+    public RoomRegistry(Executor workers, Metrics metrics) {
+        this.workers = workers;
+        this.metrics = metrics;
+        rooms = new ConcurrentHashMap<Integer, MatchInfo>();
+        connectionRooms = new ConcurrentHashMap<Integer, MatchInfo>();
+    }
+
+    /**
+     * Returns the match hosted in a room, creating it if the room is free
+     * @param room the room's number
+     * @return the room's match, or null if the server can't host more rooms
+     */
+    public MatchInfo getOrCreate(int room) {
+        MatchInfo match = rooms.get(room);
+        if(match != null)
+            return match;
+
+        if(rooms.size() >= MAX_ROOMS)
+            return null;
+
+        MatchInfo created = new MatchInfo(room, workers, lockstep);
+        match = rooms.putIfAbsent(room, created);
+        if(match != null) {
+            created.close();
+            return match;
+        }
+        return created;
+    }
+
+    /**
+     * Sets the mode of the rooms created from now on, the rooms already hosted keep theirs
+     * @param lockstep true to relay inputs, false to send snapshots
+     */
+    public void setLockstep(boolean lockstep) {
+        this.lockstep = lockstep;
+    }
+
+    /**
+     * Returns the match hosted in a room
+     * @param room the room's number
+     * @return the room's match, or null if there's none
+     */
+    public MatchInfo get(int room) {
+        return rooms.get(room);
+    }
+
+    /**
+     * Returns every hosted match
+     * @return matches to return
+     */
+    public Collection<MatchInfo> getRooms() {
+        return rooms.values();
+    }
+
+    /**
+     * Returns the number of hosted matches
+     * @return number of matches to return
+     */
+    public int size() {
+        return rooms.size();
+    }
+
+    /**
+     * Returns the number of tasks waiting in each room's executor
+     * @return queue depth of each room, by room number
+     */
+    public Map<Integer, Integer> getQueueDepths() {
+        Map<Integer, Integer> depths = new HashMap<Integer, Integer>();
+        for(MatchInfo match : rooms.values())
+            depths.put(match.room, match.executor.getQueueDepth());
+        return depths;
+    }
+
+    /**
+     * Remembers the match a connection joined, so it can leave it when it disconnects
+     * @param peer the player's connection
+     * @param match the joined match
+     * @return false if the connection already joined a match
+     */
+    public boolean bind(Peer peer, MatchInfo match) {
+        return connectionRooms.putIfAbsent(peer.getID(), match) == null;
+    }
+
+    /**
+     * Forgets the match a connection joined
+     * @param peer the player's connection
+     * @return the joined match, or null if the connection didn't join one
+     */
+    public MatchInfo unbind(Peer peer) {
+        return connectionRooms.remove(peer.getID());
+    }
+
+    /**
+     * Returns the match a connection joined
+     * @param peer the player's connection
+     * @return the joined match, or null if the connection didn't join one
+     */
+    public MatchInfo getMatch(Peer peer) {
+        return getMatch(peer.getID());
+    }
+
+    /**
+     * Returns the match a connection joined
+     * @param id the connection's id
+     * @return the joined match, or null if the connection didn't join one
+     */
+    public MatchInfo getMatch(int id) {
+        return connectionRooms.get(id);
+    }
+
+    /**
+     * Closes and removes every finished or abandoned match
+     * Each check runs on the match's own executor
+     * @param now the current time in milliseconds
+     */
+    public void reap(final long now) {
+        for(final MatchInfo match : rooms.values()) {
+            match.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if(!match.closed && (match.isFinished() || match.isAbandoned(now)))
+                        retire(match);
+                }
+            });
+        }
+    }
+
+    /**
+     * Closes a match and frees its room, must run on the match's executor
+     * @param match the match to remove
+     */
+    public void retire(MatchInfo match) {
+        rooms.remove(match.room, match);
+        for(Peer peer : match.connections)
+            connectionRooms.remove(peer.getID(), match);
+        if(!match.closed) {
+            match.close();
+            metrics.removeRoom(match.room);
+            Log.info("[SERVER]: Closed room " + match.room + ", " + rooms.size() + " still open");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package server;
+
+public class SequenceFilter {
+    int lastSequence;
+    boolean received;
+
+    public SequenceFilter() {
+        lastSequence = 0;
+        received = false;
+    }
+
+    /**
+     * Checks if a packet is newer than every packet accepted before on this channel
+     * Works across the int overflow, as long as fewer than 2^31 packets are in flight
+     * @param sequence the packet's sequence number
+     * @return true if the packet should be used, false if it's late or repeated
+     */
+    public boolean accept(int sequence) {
+        if(received && sequence - lastSequence <= 0)
+            return false;
+
+        lastSequence = sequence;
+        received = true;
+        return true;
+    }
+
+    /**
+     * Returns the sequence number of the last accepted packet
+     * @return sequence to return
+     */
+    public int getLastSequence() {
+        return lastSequence;
+    }
+}
@@ -0,0 +1,102 @@
+package server;
+
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.KryoSerialization;
+
+import java.nio.ByteBuffer;
+
+public class ServerSerialization extends KryoSerialization {
+    static final int ENCODE_BUFFER_SIZE = 256;
+
+    Metrics metrics;
+    RoomRegistry rooms;
+    Output output;
+
+    /**
+     * Constructor for the server's serialization, with every packet registered
+     * Counts the packets and bytes going in and out of the server, by packet type and room,
+     * and writes packets encoded beforehand as they are
+     * @param metrics where to count
+     * @param rooms the rooms the peers joined
+     */
+    public ServerSerialization(Metrics metrics, RoomRegistry rooms) {
+        this.metrics = metrics;
+        this.rooms = rooms;
+        output = new Output(ENCODE_BUFFER_SIZE, -1);
+        Network.registerPackets(getKryo());
+    }
+
+    /**
+     * Serializes a packet once, so it can be sent to many connections
+     * Only the thread that owns this serialization may call it, the output buffer isn't shared
+     * @param object the packet
+     * @return the serialized packet
+     */
+    public Encoded encode(Object object) {
+        output.clear();
+        getKryo().writeClassAndObject(output, object);
+        ByteBuffer data = ByteBuffer.wrap(output.toBytes()).asReadOnlyBuffer();
+        return new Encoded(object.getClass().getSimpleName(), data);
+    }
+
+    @Override
+    public void write(Connection connection, ByteBuffer buffer, Object object) {
+        write(connection == null ? -1 : connection.getID(), buffer, object);
+    }
+
+    @Override
+    public synchronized Object read(Connection connection, ByteBuffer buffer) {
+        return read(connection == null ? -1 : connection.getID(), buffer);
+    }
+
+    /**
+     * Writes a packet to a buffer, copying it if it was encoded beforehand
+     * A packet encoded beforehand needs no Kryo, so it's copied without taking the serialization's lock
+     * @param peerId the receiving peer's id, -1 if unknown
+     * @param buffer where to write
+     * @param object the packet
+     */
+    public void write(int peerId, ByteBuffer buffer, Object object) {
+        if(object instanceof Encoded) {
+            Encoded encoded = (Encoded) object;
+            buffer.put(encoded.data.duplicate());
+            count("packets_out", "bytes_out", peerId, encoded.type, encoded.size());
+            return;
+        }
+
+        int start = buffer.position();
+        synchronized(this) {
+            super.write(null, buffer, object);
+        }
+        count("packets_out", "bytes_out", peerId, object.getClass().getSimpleName(), buffer.position() - start);
+    }
+
+    /**
+     * Reads a packet from a buffer
+     * @param peerId the sending peer's id, -1 if unknown
+     * @param buffer where to read, its limit must be the packet's end
+     * @return the packet
+     */
+    public synchronized Object read(int peerId, ByteBuffer buffer) {
+        int start = buffer.position();
+        Object object = super.read(null, buffer);
+        count("packets_in", "bytes_in", peerId, object.getClass().getSimpleName(), buffer.position() - start);
+        return object;
+    }
+
+    /**
+     * Counts one packet and its size
+     * @param packets the packets counter's name
+     * @param bytes the bytes counter's name
+     * @param peerId the packet's peer, -1 if unknown
+     * @param type the packet's type
+     * @param size the packet's size in bytes
+     */
+    private void count(String packets, String bytes, int peerId, String type, int size) {
+        MatchInfo match = peerId == -1 ? null : rooms.getMatch(peerId);
+        String labels = Metrics.labels(type, match == null ? -1 : match.room);
+        metrics.increment(packets, labels, 1);
+        metrics.increment(bytes, labels, size);
+    }
+}
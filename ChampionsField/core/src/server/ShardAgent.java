@@ -0,0 +1,98 @@
+package server;
+
+import com.esotericsoftware.kryonet.Client;
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.Listener;
+import com.esotericsoftware.minlog.Log;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ShardAgent {
+    static final int REPORT_INTERVAL = 1000;
+    static final int CONNECT_TIMEOUT = 1000;
+
+    MPServer server;
+    String directoryHost;
+    int directoryPort;
+    String host;
+    int tcpPort;
+    int udpPort;
+    Client client;
+    ScheduledExecutorService reporter;
+
+    /**
+     * Constructor for the agent that keeps a server registered in the directory
+     * Reports on a thread of its own, so a slow or missing directory never delays the server's ticks
+     * @param server the server
+     * @param directoryHost the directory's address
+     * @param directoryPort the directory's port
+     * @param host the address clients reach the server at
+     * @param tcpPort the server's reliable channel port
+     * @param udpPort the server's unreliable channel port
+     */
+    public ShardAgent(final MPServer server, String directoryHost, int directoryPort, String host, int tcpPort, int udpPort) {
+        this.server = server;
+        this.directoryHost = directoryHost;
+        this.directoryPort = directoryPort;
+        this.host = host;
+        this.tcpPort = tcpPort;
+        this.udpPort = udpPort;
+
+        client = new Client(Directory.WRITE_BUFFER_SIZE, Directory.OBJECT_BUFFER_SIZE);
+        Network.registerPackets(client);
+        client.addListener(new Listener() {
+            @Override
+            public void received(Connection connection, Object object) {
+                if(object instanceof Network.ShardRegistered) {
+                    int index = ((Network.ShardRegistered) object).index;
+                    server.matchmaker.setShard(index);
+                    Log.info("[SERVER]: Registered in the directory as shard " + index);
+                }
+            }
+        });
+        client.start();
+
+        reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                report();
+            }
+        }, 0, REPORT_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends the server's load and rooms, reconnecting first if the directory was lost
+     */
+    private void report() {
+        if(!client.isConnected()) {
+            try {
+                client.connect(CONNECT_TIMEOUT, directoryHost, directoryPort);
+            } catch (IOException e) {
+                Log.debug("[SERVER]: Directory unreachable: " + e.getMessage());
+                return;
+            }
+        }
+
+        Network.ShardReport report = new Network.ShardReport();
+        report.host = host;
+        report.tcpPort = tcpPort;
+        report.udpPort = udpPort;
+        report.players = server.transport.getPeerCount();
+        report.openSlots = server.matchmaker.getOpenSlots();
+        report.joinRequests = server.matchmaker.getPlaced();
+        report.rooms = server.getRoomNumbers();
+        client.sendTCP(report);
+    }
+
+    /**
+     * Stops reporting and leaves the directory
+     */
+    public void stop() {
+        reporter.shutdownNow();
+        client.stop();
+    }
+}
@@ -0,0 +1,178 @@
+package server;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+public class SnapshotCodec {
+    static final int CHANGED_X = 1;
+    static final int CHANGED_Y = 2;
+    static final int CHANGED_VX = 4;
+    static final int CHANGED_VY = 8;
+    static final int CHANGED_BALL_TICK = 1;
+
+    /**
+     * Encodes only what changed in a snapshot since a baseline the client already has
+     * Players are matched to the baseline by id, a player that isn't in it is written whole
+     * Positions and velocities are written as fixed point varints, a change smaller than a step isn't sent
+     * @param current the snapshot to encode
+     * @param baseline the client's last acknowledged snapshot, or null to encode a keyframe
+     * @return the encoded snapshot
+     */
+    public static byte[] encode(Network.WorldSnapshot current, Network.WorldSnapshot baseline) {
+        Output output = new Output(64, -1);
+        output.writeLong(current.tick - (baseline == null ? 0 : baseline.tick), true);
+
+        output.writeInt(current.players.length, true);
+        for(Network.EntityState player : current.players) {
+            int index = baseline == null ? -1 : indexOf(baseline.players, player.id);
+            output.writeInt(index + 1, true);
+            if(index == -1) {
+                output.writeInt(player.id, true);
+                writeState(output, player, null);
+            } else {
+                writeState(output, player, baseline.players[index]);
+            }
+        }
+        writeState(output, current.ball, baseline == null ? null : baseline.ball);
+
+        int mask = 0;
+        if(baseline == null || current.ballTick != baseline.ballTick)
+            mask |= CHANGED_BALL_TICK;
+        output.writeByte(mask);
+        if((mask & CHANGED_BALL_TICK) != 0)
+            output.writeLong(current.tick - current.ballTick, true);
+
+        return output.toBytes();
+    }
+
+    /**
+     * Rebuilds a snapshot from its encoding and the baseline it was encoded against
+     * @param data the encoded snapshot
+     * @param baseline the snapshot used as baseline, or null for a keyframe
+     * @return the rebuilt snapshot, without sequence and room
+     */
+    public static Network.WorldSnapshot decode(byte[] data, Network.WorldSnapshot baseline) {
+        Input input = new Input(data);
+        Network.WorldSnapshot snapshot = new Network.WorldSnapshot();
+        snapshot.tick = input.readLong(true) + (baseline == null ? 0 : baseline.tick);
+
+        snapshot.players = new Network.EntityState[input.readInt(true)];
+        for(int i = 0; i < snapshot.players.length; i++) {
+            int index = input.readInt(true) - 1;
+            if(index == -1) {
+                int id = input.readInt(true);
+                snapshot.players[i] = readState(input, null);
+                snapshot.players[i].id = id;
+            } else {
+                snapshot.players[i] = readState(input, baseline.players[index]);
+            }
+        }
+        snapshot.ball = readState(input, baseline == null ? null : baseline.ball);
+        snapshot.ball.id = -1;
+
+        int mask = input.readByte();
+        if((mask & CHANGED_BALL_TICK) != 0)
+            snapshot.ballTick = snapshot.tick - input.readLong(true);
+        else
+            snapshot.ballTick = baseline.ballTick;
+
+        return snapshot;
+    }
+
+    /**
+     * Checks if two snapshots have the same entities in the same state, as far as the wire can tell
+     * @param a first snapshot
+     * @param b second snapshot
+     * @return true if encoding one against the other would carry no change
+     */
+    public static boolean sameState(Network.WorldSnapshot a, Network.WorldSnapshot b) {
+        if(a.players.length != b.players.length || a.ballTick != b.ballTick || changes(a.ball, b.ball) != 0)
+            return false;
+
+        for(int i = 0; i < a.players.length; i++) {
+            if(a.players[i].id != b.players[i].id || changes(a.players[i], b.players[i]) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the fields of an entity that differ from its baseline, preceded by a mask of them
+     * @param output where to write
+     * @param state the entity's state
+     * @param base the entity's baseline state, or null to write every field
+     */
+    private static void writeState(Output output, Network.EntityState state, Network.EntityState base) {
+        int mask = base == null ? CHANGED_X | CHANGED_Y | CHANGED_VX | CHANGED_VY : changes(state, base);
+        output.writeByte(mask);
+        if((mask & CHANGED_X) != 0)
+            output.writeInt(Quantizer.position(state.x), false);
+        if((mask & CHANGED_Y) != 0)
+            output.writeInt(Quantizer.position(state.y), false);
+        if((mask & CHANGED_VX) != 0)
+            output.writeInt(Quantizer.velocity(state.vx), false);
+        if((mask & CHANGED_VY) != 0)
+            output.writeInt(Quantizer.velocity(state.vy), false);
+    }
+
+    /**
+     * Reads an entity written by writeState, taking the missing fields from its baseline
+     * @param input where to read
+     * @param base the entity's baseline state, or null if every field was written
+     * @return the entity's state
+     */
+    private static Network.EntityState readState(Input input, Network.EntityState base) {
+        Network.EntityState state = new Network.EntityState();
+        if(base != null) {
+            state.id = base.id;
+            state.x = base.x;
+            state.y = base.y;
+            state.vx = base.vx;
+            state.vy = base.vy;
+        }
+
+        int mask = input.readByte();
+        if((mask & CHANGED_X) != 0)
+            state.x = Quantizer.position(input.readInt(false));
+        if((mask & CHANGED_Y) != 0)
+            state.y = Quantizer.position(input.readInt(false));
+        if((mask & CHANGED_VX) != 0)
+            state.vx = Quantizer.velocity(input.readInt(false));
+        if((mask & CHANGED_VY) != 0)
+            state.vy = Quantizer.velocity(input.readInt(false));
+        return state;
+    }
+
+    /**
+     * Returns the mask of fields whose fixed point values differ between two states of an entity
+     * @param state the new state
+     * @param base the old state
+     * @return mask to return
+     */
+    private static int changes(Network.EntityState state, Network.EntityState base) {
+        int mask = 0;
+        if(Quantizer.position(state.x) != Quantizer.position(base.x))
+            mask |= CHANGED_X;
+        if(Quantizer.position(state.y) != Quantizer.position(base.y))
+            mask |= CHANGED_Y;
+        if(Quantizer.velocity(state.vx) != Quantizer.velocity(base.vx))
+            mask |= CHANGED_VX;
+        if(Quantizer.velocity(state.vy) != Quantizer.velocity(base.vy))
+            mask |= CHANGED_VY;
+        return mask;
+    }
+
+    /**
+     * Returns the index of a player in a snapshot
+     * @param players the snapshot's players
+     * @param id the player's id
+     * @return index to return, or -1 if the player isn't there
+     */
+    private static int indexOf(Network.EntityState[] players, int id) {
+        for(int i = 0; i < players.length; i++) {
+            if(players[i].id == id)
+                return i;
+        }
+        return -1;
+    }
+}
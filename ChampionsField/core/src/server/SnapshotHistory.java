@@ -0,0 +1,44 @@
+package server;
+
+public class SnapshotHistory {
+    Network.WorldSnapshot[] snapshots;
+
+    /**
+     * Constructor for the history
+     * @param size number of snapshots kept, older ones are overwritten
+     */
+    public SnapshotHistory(int size) {
+        snapshots = new Network.WorldSnapshot[size];
+    }
+
+    /**
+     * Stores a snapshot, replacing the one that is size sequences older
+     * @param snapshot the snapshot to store
+     */
+    public void add(Network.WorldSnapshot snapshot) {
+        snapshots[index(snapshot.sequence)] = snapshot;
+    }
+
+    /**
+     * Returns a stored snapshot
+     * @param sequence the snapshot's sequence number
+     * @return the snapshot, or null if it was never stored or was already overwritten
+     */
+    public Network.WorldSnapshot get(int sequence) {
+        Network.WorldSnapshot snapshot = snapshots[index(sequence)];
+        if(snapshot == null || snapshot.sequence != sequence)
+            return null;
+
+        return snapshot;
+    }
+
+    /**
+     * Returns the position of a sequence number in the ring
+     * @param sequence the sequence number
+     * @return index to return
+     */
+    private int index(int sequence) {
+        int index = sequence % snapshots.length;
+        return index < 0 ? index + snapshots.length : index;
+    }
+}
@@ -0,0 +1,45 @@
+package server;
+
+import java.io.IOException;
+
+/**
+ * The server's side of the network, every backend speaks KryoNet's wire protocol so any client can connect to any of them
+ */
+public interface Transport {
+    /**
+     * Sets who is told about connections and packets, must be called before start
+     * @param listener the listener
+     */
+    void setListener(TransportListener listener);
+
+    /**
+     * Opens the server's sockets
+     * @param tcpPort the reliable channel's port
+     * @param udpPort the unreliable channel's port
+     * @throws IOException if a port can't be bound
+     */
+    void bind(int tcpPort, int udpPort) throws IOException;
+
+    /**
+     * Starts accepting connections and reading packets on the transport's own threads
+     */
+    void start();
+
+    /**
+     * Closes every connection and the server's sockets
+     */
+    void stop();
+
+    /**
+     * Serializes a packet once, so it can be sent to many peers
+     * @param object the packet
+     * @return the serialized packet
+     */
+    Encoded encode(Object object);
+
+    /**
+     * Returns the number of open connections
+     * @return number to return
+     */
+    int getPeerCount();
+}
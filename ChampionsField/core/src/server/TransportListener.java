@@ -0,0 +1,25 @@
+package server;
+
+/**
+ * Told about a transport's connections and packets, on the transport's threads
+ */
+public interface TransportListener {
+    /**
+     * Called once the peer can be sent packets
+     * @param peer the connected peer
+     */
+    void connected(Peer peer);
+
+    /**
+     * Called once when the peer's connection is closed, by either side
+     * @param peer the disconnected peer
+     */
+    void disconnected(Peer peer);
+
+    /**
+     * Called for each packet the peer sends, KryoNet's own messages are answered by the transport
+     * @param peer the sending peer
+     * @param object the packet
+     */
+    void received(Peer peer, Object object);
+}
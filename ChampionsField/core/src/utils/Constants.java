@@ -7,19 +7,28 @@ import com.badlogic.gdx.math.Vector2;
 import java.text.SimpleDateFormat;
 
 public final class Constants {
-    public static final float ScreenWidth = Gdx.graphics.getWidth();
-    public static final float ScreenHeight = Gdx.graphics.getHeight();
+    //Every client and the server simulate the same half texture sized field, whatever their screen is
+    public static final float FIELD_WIDTH = 1280;
+    public static final float FIELD_HEIGHT = 800;
+    //Dedicated servers have no graphics, they don't draw so their screen is the field
+    public static final float ScreenWidth = Gdx.graphics != null ? Gdx.graphics.getWidth() : FIELD_WIDTH;
+    public static final float ScreenHeight = Gdx.graphics != null ? Gdx.graphics.getHeight() : FIELD_HEIGHT;
     public static final float BALL_SIZE = 48;
     public static final float PLAYER_SIZE = 60;
     public static final float FIELD_TEXTURE_WIDTH = 2560;
     public static final float FIELD_TEXTURE_HEIGHT = 1600;
     public static final float BOX_TO_WORLD = 100f;
     public static final float WORLD_TO_BOX = 0.01f;
+    //Only the drawing scales with the screen, the field is stretched over it like its texture
+    public static final float BOX_TO_SCREEN_WIDTH = BOX_TO_WORLD * ScreenWidth / FIELD_WIDTH;
+    public static final float BOX_TO_SCREEN_HEIGHT = BOX_TO_WORLD * ScreenHeight / FIELD_HEIGHT;
     public static final float GAME_SIMULATION_SPEED = 1 / 60f;
     public static final float widthScale = ScreenWidth / FIELD_TEXTURE_WIDTH;
     public static final float heightScale = ScreenHeight / FIELD_TEXTURE_HEIGHT;
-    public static final float regionWidth = 380 * widthScale * WORLD_TO_BOX;
-    public static final float regionHeight = 1535 * heightScale * WORLD_TO_BOX;
+    public static final float fieldWidthScale = FIELD_WIDTH / FIELD_TEXTURE_WIDTH;
+    public static final float fieldHeightScale = FIELD_HEIGHT / FIELD_TEXTURE_HEIGHT;
+    public static final float regionWidth = 380 * fieldWidthScale * WORLD_TO_BOX;
+    public static final float regionHeight = 1535 * fieldHeightScale * WORLD_TO_BOX;
     public static final long GAME_TIME = 60;
     public static final int NUMBER_PLAYER_ONLINE = 1;
     public static final int NUMBER_MATCHES_HOST_BY_SERVER = 2;
@@ -47,18 +56,18 @@ public final class Constants {
     public static final float PowerUpHeight = 50f * heightScale;
 
     //players positions
-    public static final Vector2 Defender = new Vector2(ScreenWidth/2 - 430 * widthScale , 0);
-    public static final Vector2 Midfielder = new Vector2(400 * widthScale, -300 * heightScale );
-    public static final Vector2 Striker = new Vector2(200 * widthScale, 450 * heightScale);
+    public static final Vector2 Defender = new Vector2(FIELD_WIDTH/2 - 430 * fieldWidthScale , 0);
+    public static final Vector2 Midfielder = new Vector2(400 * fieldWidthScale, -300 * fieldHeightScale );
+    public static final Vector2 Striker = new Vector2(200 * fieldWidthScale, 450 * fieldHeightScale);
 
     //Attacking team field regions
-    public static final Rectangle AttackCentral = new Rectangle((-ScreenWidth/2 + 130 * widthScale) * WORLD_TO_BOX, - regionHeight/2, regionWidth, regionHeight);
-    public static final Rectangle AttackMidfielder = new Rectangle((-ScreenWidth/2 + 510 * widthScale) * WORLD_TO_BOX, - regionHeight/2, regionWidth, regionHeight);
+    public static final Rectangle AttackCentral = new Rectangle((-FIELD_WIDTH/2 + 130 * fieldWidthScale) * WORLD_TO_BOX, - regionHeight/2, regionWidth, regionHeight);
+    public static final Rectangle AttackMidfielder = new Rectangle((-FIELD_WIDTH/2 + 510 * fieldWidthScale) * WORLD_TO_BOX, - regionHeight/2, regionWidth, regionHeight);
     public static final Rectangle AttackStriker = new Rectangle(-regionWidth, - regionHeight/2, regionWidth, regionHeight);
 
     //Defending team field regions
-    public static final Rectangle DefendCentral = new Rectangle(760 * widthScale * WORLD_TO_BOX, - regionHeight/2, regionWidth, regionHeight);
-    public static final Rectangle DefendMidfielder = new Rectangle(380 * widthScale * WORLD_TO_BOX, - regionHeight/2, regionWidth, regionHeight);
+    public static final Rectangle DefendCentral = new Rectangle(760 * fieldWidthScale * WORLD_TO_BOX, - regionHeight/2, regionWidth, regionHeight);
+    public static final Rectangle DefendMidfielder = new Rectangle(380 * fieldWidthScale * WORLD_TO_BOX, - regionHeight/2, regionWidth, regionHeight);
     public static final Rectangle DefendStriker =  new Rectangle(0, - regionHeight/2, regionWidth, regionHeight);
     public static float LoadingTime = 7.5f;
 
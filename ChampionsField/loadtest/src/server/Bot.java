@@ -0,0 +1,233 @@
+package server;
+
+import java.io.IOException;
+import java.util.Random;
+
+import utils.Constants;
+
+public class Bot {
+    static final int TIME_OUT = 5000;
+    static final int SNAPSHOT_HISTORY = 64;
+    static final int LATENCY_WINDOW = 256;
+    static final int TURN_INTERVAL = 1000;
+
+    String name;
+    volatile int team;
+    volatile int room;
+    LoadStats stats;
+    ClientTransport client;
+    Random random;
+    ClockSync clock;
+
+    SnapshotHistory snapshots;
+    SequenceFilter snapshotSequence;
+    volatile int ackSnapshot;
+    volatile boolean joined;
+    volatile boolean lockstep;
+    long joinSentAt;
+    boolean keyframeRequested;
+
+    //Written by the scheduler and read by the client's thread, guarded by the bot
+    int inputSequence;
+    int lastAckInput;
+    long[] sentAt;
+    float x, y;
+    long lastTurn;
+
+    /**
+     * Constructor for a bot, a headless client that only speaks the network protocol
+     * @param name the bot's player name
+     * @param team the bot's team
+     * @param room the room the bot joins, or MPClient.ANY_ROOM to be placed by the server's matchmaking
+     * @param stats where the bot counts what it sends and receives
+     */
+    public Bot(String name, int team, int room, LoadStats stats) {
+        this.name = name;
+        this.team = team;
+        this.room = room;
+        this.stats = stats;
+        random = new Random(name.hashCode());
+        snapshots = new SnapshotHistory(SNAPSHOT_HISTORY);
+        snapshotSequence = new SequenceFilter();
+        sentAt = new long[LATENCY_WINDOW];
+        clock = new ClockSync();
+        joined = false;
+    }
+
+    /**
+     * Connects to the server and asks to join the bot's room
+     * @param client the transport to the server
+     * @param server the server to connect to, or null if the directory had none to offer
+     * @throws IOException if the server can't be reached
+     */
+    public void connect(ClientTransport client, Network.ShardAssigned server) throws IOException {
+        if(server == null) {
+            stats.rejected.incrementAndGet();
+            return;
+        }
+
+        this.client = client;
+        client.setListener(new TransportListener() {
+            @Override
+            public void connected(Peer peer) {
+
+            }
+
+            @Override
+            public void disconnected(Peer peer) {
+
+            }
+
+            @Override
+            public void received(Peer peer, Object object) {
+                if(object instanceof Network.MatchAssigned) {
+                    room = ((Network.MatchAssigned) object).room;
+                    team = ((Network.MatchAssigned) object).team;
+                    lockstep = ((Network.MatchAssigned) object).lockstep;
+                }
+
+                if(object instanceof Network.AddPlayer && ((Network.AddPlayer) object).name.equals(name) && !joined) {
+                    stats.joinLatency.record((System.nanoTime() - joinSentAt) / 1000);
+                    joined = true;
+                }
+
+                if(object instanceof Network.SnapshotDelta)
+                    receiveSnapshot((Network.SnapshotDelta) object);
+
+                if(object instanceof Network.LockstepFrame) {
+                    stats.snapshotsReceived.incrementAndGet();
+                    stats.bytesReceived.addAndGet(((Network.LockstepFrame) object).inputs.length);
+                }
+
+                if(object instanceof Network.ClockPong) {
+                    Network.ClockPong clockPong = (Network.ClockPong) object;
+                    long now = ClockSync.now();
+                    clock.addSample(clockPong.clientTime, clockPong.serverTime, now);
+                    stats.roundTrip.record(now - clockPong.clientTime);
+                }
+
+                if(object instanceof Network.MatchFull)
+                    stats.rejected.incrementAndGet();
+            }
+        });
+        client.connect(TIME_OUT, server.host, server.tcpPort, server.udpPort);
+
+        joinSentAt = System.nanoTime();
+        if(room == MPClient.ANY_ROOM) {
+            Network.JoinRequest joinRequest = new Network.JoinRequest();
+            joinRequest.name = name;
+            joinRequest.team = team;
+            client.sendReliable(joinRequest);
+        } else {
+            Network.Login login = new Network.Login();
+            login.name = name;
+            login.team = team;
+            login.room = room;
+            client.sendReliable(login);
+        }
+    }
+
+    /**
+     * Sends the next input, turning the joystick to a random direction and pinging the server every second
+     */
+    public synchronized void sendInput() {
+        if(!joined)
+            return;
+
+        long now = System.currentTimeMillis();
+        if(now - lastTurn >= TURN_INTERVAL) {
+            double angle = random.nextDouble() * Math.PI * 2;
+            x = (float) Math.cos(angle) * Constants.PLAYERS_SPEED;
+            y = (float) Math.sin(angle) * Constants.PLAYERS_SPEED;
+            lastTurn = now;
+
+            //Measures the server's clock once a second like the game's client, which also tells the server the round trip
+            Network.ClockPing clockPing = new Network.ClockPing();
+            clockPing.clientTime = ClockSync.now();
+            clockPing.roundTrip = clock.getRoundTrip();
+            client.sendUnreliable(clockPing);
+
+            //A lockstep room only needs the joystick when it changes
+            if(lockstep) {
+                Network.LockstepInput lockstepInput = new Network.LockstepInput();
+                lockstepInput.room = room;
+                lockstepInput.x = Quantizer.input(x);
+                lockstepInput.y = Quantizer.input(y);
+                client.sendReliable(lockstepInput);
+                stats.inputsSent.incrementAndGet();
+            }
+        }
+        if(lockstep)
+            return;
+
+        Network.PlayerInput playerInput = new Network.PlayerInput();
+        playerInput.sequence = ++inputSequence;
+        playerInput.ackSnapshot = ackSnapshot;
+        playerInput.x = x;
+        playerInput.y = y;
+        sentAt[inputSequence % LATENCY_WINDOW] = System.nanoTime();
+        client.sendUnreliable(playerInput);
+        stats.inputsSent.incrementAndGet();
+    }
+
+    /**
+     * Rebuilds a snapshot like the game's client does, and measures the time its acknowledged input took to come back
+     * @param delta the received snapshot
+     */
+    private void receiveSnapshot(Network.SnapshotDelta delta) {
+        stats.snapshotsReceived.incrementAndGet();
+        stats.bytesReceived.addAndGet(delta.data.length);
+        recordLatency(delta.ackInput);
+
+        Network.WorldSnapshot baseline = null;
+        if(delta.baseline != 0) {
+            baseline = snapshots.get(delta.baseline);
+            if(baseline == null) {
+                if(!keyframeRequested) {
+                    Network.RequestKeyframe requestKeyframe = new Network.RequestKeyframe();
+                    requestKeyframe.room = room;
+                    client.sendReliable(requestKeyframe);
+                    keyframeRequested = true;
+                }
+                return;
+            }
+        } else {
+            stats.keyframesReceived.incrementAndGet();
+            keyframeRequested = false;
+        }
+
+        if(!snapshotSequence.accept(delta.sequence))
+            return;
+
+        Network.WorldSnapshot snapshot = SnapshotCodec.decode(delta.data, baseline);
+        snapshot.sequence = delta.sequence;
+        snapshots.add(snapshot);
+        ackSnapshot = snapshot.sequence;
+    }
+
+    /**
+     * Records the round trip of an input the first time the server acknowledges it
+     * @param ackInput the last input the server applied
+     */
+    private synchronized void recordLatency(int ackInput) {
+        if(ackInput - lastAckInput <= 0 || inputSequence - ackInput >= LATENCY_WINDOW)
+            return;
+
+        lastAckInput = ackInput;
+        stats.latency.record((System.nanoTime() - sentAt[ackInput % LATENCY_WINDOW]) / 1000);
+    }
+
+    /**
+     * Leaves the room and closes the connection
+     */
+    public void leave() {
+        if(client == null)
+            return;
+
+        Network.RemovePlayer removePlayer = new Network.RemovePlayer();
+        removePlayer.team = team;
+        removePlayer.room = room;
+        client.sendReliable(removePlayer);
+        client.close();
+    }
+}
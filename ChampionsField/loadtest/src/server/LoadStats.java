@@ -0,0 +1,25 @@
+package server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LoadStats {
+    AtomicLong inputsSent;
+    AtomicLong snapshotsReceived;
+    AtomicLong keyframesReceived;
+    AtomicLong bytesReceived;
+    AtomicLong rejected;
+    Histogram latency;
+    Histogram joinLatency;
+    Histogram roundTrip;
+
+    public LoadStats() {
+        inputsSent = new AtomicLong();
+        snapshotsReceived = new AtomicLong();
+        keyframesReceived = new AtomicLong();
+        bytesReceived = new AtomicLong();
+        rejected = new AtomicLong();
+        latency = new Histogram();
+        joinLatency = new Histogram();
+        roundTrip = new Histogram();
+    }
+}
@@ -0,0 +1,223 @@
+package server;
+
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.esotericsoftware.minlog.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import utils.Constants;
+
+/**
+ * Drives a running MPServer with bots and reports what it sustained
+ * With "loopback" or "loopback-copy" as the host, the server runs in this JVM on that transport instead
+ * With "any" as the first room, the bots ask the server's matchmaking for a room instead of logging in to one
+ * With "lockstep" after the first room, the loopback server runs its rooms in lockstep
+ * If a directory runs on the host, the bots ask it for their server, only the host's own metrics are read then
+ * Usage: LoadTest rooms inputRate seconds [host] [metricsPort] [firstRoom|any] [lockstep]
+ */
+public class LoadTest {
+    static final String DEFAULT_HOST = Network.LOCAL_IP;
+
+    public static void main(String[] args) throws Exception {
+        if(args.length < 3) {
+            System.out.println("Usage: LoadTest rooms inputRate seconds [host] [metricsPort] [firstRoom|any] [lockstep]");
+            return;
+        }
+
+        int rooms = Integer.parseInt(args[0]);
+        int inputRate = Integer.parseInt(args[1]);
+        int seconds = Integer.parseInt(args[2]);
+        String host = args.length > 3 ? args[3] : DEFAULT_HOST;
+        int metricsPort = args.length > 4 ? Integer.parseInt(args[4]) : MPServer.METRICS_PORT;
+        boolean matchmaking = args.length > 5 && args[5].equals("any");
+        int firstRoom = args.length > 5 && !matchmaking ? Integer.parseInt(args[5]) : 0;
+        boolean lockstep = args.length > 6 && args[6].equals("lockstep");
+        Log.set(Log.LEVEL_WARN);
+
+        MPServer server = null;
+        if(host.startsWith("loopback")) {
+            GdxNativesLoader.load();
+            server = new MPServer(MPServer.DEFAULT_SNAPSHOT_RATE, host);
+            server.setLockstep(lockstep);
+        }
+
+        //Joins every room until it's full, so every match starts
+        LoadStats stats = new LoadStats();
+        ArrayList<Bot> bots = new ArrayList<Bot>();
+        for(int room = firstRoom; room < firstRoom + rooms; room++) {
+            for(int i = 0; i < Constants.NUMBER_PLAYER_ONLINE * 2; i++) {
+                int botRoom = matchmaking ? MPClient.ANY_ROOM : room;
+                Bot bot = new Bot("bot" + room + "_" + i, i % 2, botRoom, stats);
+                if(server != null)
+                    bot.connect(new LoopbackClientTransport(), DirectoryClient.direct(host, botRoom));
+                else
+                    bot.connect(new KryoClientTransport(), DirectoryClient.find(host, botRoom));
+                bots.add(bot);
+            }
+        }
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
+        Random random = new Random();
+        long period = 1000000 / inputRate;
+        for(final Bot bot : bots) {
+            scheduler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    bot.sendInput();
+                }
+            }, random.nextInt((int) period), period, TimeUnit.MICROSECONDS);
+        }
+
+        //Measures only once every bot is playing
+        int joined = 0;
+        long deadline = System.currentTimeMillis() + 10000;
+        while(System.currentTimeMillis() < deadline) {
+            joined = 0;
+            for(Bot bot : bots)
+                if(bot.joined)
+                    joined++;
+            if(joined == bots.size())
+                break;
+            Thread.sleep(100);
+        }
+
+        LoadStats before = snapshot(stats);
+        Map<String, Long> metricsBefore = scrape(server, host, metricsPort);
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        Map<String, Long> metricsAfter = scrape(server, host, metricsPort);
+
+        scheduler.shutdownNow();
+        for(Bot bot : bots)
+            bot.leave();
+
+        report(rooms, bots.size(), joined, elapsed, before, stats, metricsBefore, metricsAfter);
+        System.exit(0);
+    }
+
+    /**
+     * Copies the current counters, so the warm up isn't measured
+     * @param stats the live counters
+     * @return the copy
+     */
+    private static LoadStats snapshot(LoadStats stats) {
+        LoadStats copy = new LoadStats();
+        copy.inputsSent.set(stats.inputsSent.get());
+        copy.snapshotsReceived.set(stats.snapshotsReceived.get());
+        copy.keyframesReceived.set(stats.keyframesReceived.get());
+        copy.bytesReceived.set(stats.bytesReceived.get());
+        copy.rejected.set(stats.rejected.get());
+        return copy;
+    }
+
+    /**
+     * Reads the server's metrics, from the endpoint or directly if the server runs in this JVM
+     * @param server the server in this JVM, or null
+     * @param host the server's address
+     * @param port the endpoint's port
+     * @return every series by name, empty if the endpoint can't be reached
+     */
+    private static Map<String, Long> scrape(MPServer server, String host, int port) {
+        if(server != null)
+            return parse(new Scanner(server.getMetrics().getReport()));
+
+        try {
+            InputStream input = new URL("http://" + host + ":" + port + "/metrics").openStream();
+            return parse(new Scanner(input, "UTF-8"));
+        } catch (IOException e) {
+            System.out.println("Couldn't read the server's metrics: " + e.getMessage());
+            return new HashMap<String, Long>();
+        }
+    }
+
+    /**
+     * Parses a metrics report
+     * @param scanner the report
+     * @return every series by name
+     */
+    private static Map<String, Long> parse(Scanner scanner) {
+        Map<String, Long> values = new HashMap<String, Long>();
+        while(scanner.hasNextLine()) {
+            String line = scanner.nextLine();
+            int split = line.lastIndexOf(' ');
+            if(split != -1)
+                values.put(line.substring(0, split), Long.parseLong(line.substring(split + 1)));
+        }
+        scanner.close();
+        return values;
+    }
+
+    /**
+     * Returns the server time spent stepping and sending each room between two scrapes
+     * Rooms that didn't run in between, like the ones left over from an earlier test, are skipped
+     * @param before the first scrape
+     * @param after the second scrape
+     * @return microseconds spent, by room label
+     */
+    private static Map<String, Long> roomTimes(Map<String, Long> before, Map<String, Long> after) {
+        Map<String, Long> times = new HashMap<String, Long>();
+        for(Map.Entry<String, Long> entry : after.entrySet()) {
+            String key = entry.getKey();
+            if(!key.startsWith("tick_us_sum{") && !key.startsWith("fanout_us_sum{"))
+                continue;
+
+            String room = key.substring(key.indexOf('{'));
+            Long previous = before.get(key);
+            long spent = entry.getValue() - (previous == null ? 0 : previous);
+            if(spent == 0)
+                continue;
+
+            Long total = times.get(room);
+            times.put(room, (total == null ? 0 : total) + spent);
+        }
+        return times;
+    }
+
+    private static void report(int rooms, int bots, int joined, double elapsed, LoadStats before, LoadStats after,
+                               Map<String, Long> metricsBefore, Map<String, Long> metricsAfter) {
+        System.out.println("Rooms: " + rooms + ", bots: " + bots + ", joined: " + joined + ", rejected: " + after.rejected.get());
+        System.out.printf("Inputs sent: %.0f/s%n", (after.inputsSent.get() - before.inputsSent.get()) / elapsed);
+        System.out.printf("Snapshots received: %.0f/s (%d keyframes)%n",
+                (after.snapshotsReceived.get() - before.snapshotsReceived.get()) / elapsed,
+                after.keyframesReceived.get() - before.keyframesReceived.get());
+        System.out.printf("Snapshot payload: %.1f KB/s total, %.0f B/s per bot%n",
+                (after.bytesReceived.get() - before.bytesReceived.get()) / elapsed / 1024,
+                (after.bytesReceived.get() - before.bytesReceived.get()) / elapsed / Math.max(joined, 1));
+
+        Histogram latency = after.latency;
+        System.out.printf("Input to snapshot latency: p50 %.1f ms, p99 %.1f ms, max %.1f ms (%d samples)%n",
+                latency.quantile(0.5) / 1000.0, latency.quantile(0.99) / 1000.0, latency.getMax() / 1000.0, latency.getCount());
+
+        Histogram joinLatency = after.joinLatency;
+        System.out.printf("Join latency: p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                joinLatency.quantile(0.5) / 1000.0, joinLatency.quantile(0.99) / 1000.0, joinLatency.getMax() / 1000.0);
+
+        Histogram roundTrip = after.roundTrip;
+        System.out.printf("Clock ping round trip: p50 %.1f ms, p99 %.1f ms, max %.1f ms (%d samples)%n",
+                roundTrip.quantile(0.5) / 1000.0, roundTrip.quantile(0.99) / 1000.0, roundTrip.getMax() / 1000.0, roundTrip.getCount());
+
+        Map<String, Long> times = roomTimes(metricsBefore, metricsAfter);
+        if(times.isEmpty())
+            return;
+
+        long total = 0;
+        long max = 0;
+        for(long time : times.values()) {
+            total += time;
+            max = Math.max(max, time);
+        }
+        System.out.printf("Server time per room: %.2f ms/s average, %.2f ms/s max over %d rooms%n",
+                total / 1000.0 / times.size() / elapsed, max / 1000.0 / elapsed, times.size());
+    }
+}